@@ -0,0 +1,89 @@
+package cemethod;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sampling from and fitting the distributions, per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributionBenchmarks {
+	@Param({"10", "100", "1000"})
+	int dimension;
+
+	@Param({"10"})
+	int elites;
+
+	private NormalDistribution normal;
+	private GeneralNormalDistribution general;
+	private double[][] samples;
+	private double[][] covariance;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		normal = new NormalDistribution(new MersenneTwister(1), new double[dimension], 1);
+		general = new GeneralNormalDistribution(new MersenneTwister(2), new double[dimension], 1);
+		samples = new double[elites][];
+		for(int i = 0; i < elites; i++) {
+			samples[i] = normal.sample();
+		}
+		covariance = new double[dimension][dimension];
+	}
+
+	@Benchmark
+	public double[] normalSample() {
+		return normal.sample();
+	}
+
+	@Benchmark
+	public double normalFitTo() {
+		normal.fitTo(samples, 0.1);
+		return normal.getVar();
+	}
+
+	@Benchmark
+	public double[] generalSample() {
+		return general.sample();
+	}
+
+	@Benchmark
+	public double generalFitTo() {
+		general.fitTo(samples, 0.1);
+		return general.getVar();
+	}
+
+	@Benchmark
+	public double[][] covarianceCommons() {
+		return new Covariance(samples, false).getCovarianceMatrix().getData();
+	}
+
+	/**
+	 * The covariance as computed by GeneralNormalDistribution.fitTo().
+	 */
+	@Benchmark
+	public double[][] covarianceKernels() {
+		double[] means = new double[dimension];
+		Kernels.mean(samples, dimension, means);
+		Kernels.covariance(Kernels.center(samples, dimension, means), elites, dimension, covariance);
+		return covariance;
+	}
+}
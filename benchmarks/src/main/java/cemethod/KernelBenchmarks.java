@@ -0,0 +1,162 @@
+package cemethod;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The kernels behind NormalDistribution, against the scalar loops they
+ * replaced, which divide inside the inner loop, sum into a single
+ * accumulator and take a square root per component.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmarks {
+	@Param({"100", "1000", "10000", "100000"})
+	int dimension;
+
+	@Param({"10"})
+	int elites;
+
+	private double[][] samples;
+	private double[] packed;
+	private double[] means;
+	private double[] z;
+	private double var = 2;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		MersenneTwister r = new MersenneTwister(1);
+		samples = new double[elites][dimension];
+		for(double[] s : samples) {
+			for(int i = 0; i < dimension; i++) {
+				s[i] = r.nextGaussian();
+			}
+		}
+		packed = new double[elites * dimension];
+		for(int k = 0; k < elites; k++) {
+			System.arraycopy(samples[k], 0, packed, k * dimension, dimension);
+		}
+		means = new double[dimension];
+		z = new double[dimension];
+		for(int i = 0; i < dimension; i++) {
+			z[i] = r.nextGaussian();
+		}
+	}
+
+	@Benchmark
+	public double fitScalar() {
+		int nsamples = samples.length;
+		for(int i = 0; i < dimension; i++) {
+			means[i] = 0;
+		}
+		for(double[] sample : samples) {
+			for(int i = 0; i < dimension; i++) {
+				means[i] += sample[i] / nsamples;
+			}
+		}
+		double nvar = 0;
+		for(double[] sample : samples) {
+			for(int i = 0; i < dimension; i++) {
+				double si = sample[i];
+				nvar += (si - means[i]) * (si - means[i]);
+			}
+		}
+		return nvar / nsamples / dimension;
+	}
+
+	@Benchmark
+	public double fitKernels() {
+		Kernels.mean(samples, dimension, means);
+		return Kernels.sumOfSquares(samples, dimension, means) / elites / dimension;
+	}
+
+	/**
+	 * The same fit on the elites packed into one row-major matrix, as CESolver
+	 * would have to do each iteration, since samples are drawn as separate vectors.
+	 */
+	@Benchmark
+	public double fitPacked() {
+		for(int k = 0; k < elites; k++) {
+			System.arraycopy(samples[k], 0, packed, k * dimension, dimension);
+		}
+		return fitPackedOnly();
+	}
+
+	/**
+	 * The fit on elites that are already packed, which is the best a packed layout could do.
+	 */
+	@Benchmark
+	public double fitPackedOnly() {
+		System.arraycopy(packed, 0, means, 0, dimension);
+		for(int k = 1; k < elites; k++) {
+			int offset = k * dimension;
+			for(int i = 0; i < dimension; i++) {
+				means[i] += packed[offset + i];
+			}
+		}
+		double scale = 1.0 / elites;
+		for(int i = 0; i < dimension; i++) {
+			means[i] *= scale;
+		}
+		double s0 = 0;
+		double s1 = 0;
+		double s2 = 0;
+		double s3 = 0;
+		for(int k = 0; k < elites; k++) {
+			int offset = k * dimension;
+			int i = 0;
+			for(; i + 3 < dimension; i += 4) {
+				double d0 = packed[offset + i] - means[i];
+				double d1 = packed[offset + i + 1] - means[i + 1];
+				double d2 = packed[offset + i + 2] - means[i + 2];
+				double d3 = packed[offset + i + 3] - means[i + 3];
+				s0 += d0 * d0;
+				s1 += d1 * d1;
+				s2 += d2 * d2;
+				s3 += d3 * d3;
+			}
+			for(; i < dimension; i++) {
+				double d = packed[offset + i] - means[i];
+				s0 += d * d;
+			}
+		}
+		return ((s0 + s1) + (s2 + s3)) / elites / dimension;
+	}
+
+	/**
+	 * The transform of standard normal values into a sample,
+	 * without drawing the values.
+	 */
+	@Benchmark
+	public double[] affineScalar() {
+		double[] ret = new double[dimension];
+		for(int i = 0; i < dimension; i++) {
+			ret[i] = means[i] + z[i] * Math.sqrt(var);
+		}
+		return ret;
+	}
+
+	@Benchmark
+	public double[] affineKernel() {
+		double[] ret = z.clone();
+		Kernels.affine(ret, means, Math.sqrt(var));
+		return ret;
+	}
+}
@@ -0,0 +1,83 @@
+package cemethod;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The overhead of CESolver per sample: solving a function that costs next
+ * to nothing, so that the time is spent on queueing, sampling and fitting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmarks {
+	private static final int SAMPLES = 100;
+	private static final int ITERATIONS = 10;
+
+	@Param({"10", "100"})
+	int dimension;
+
+	@Param({"1", "4"})
+	int threads;
+
+	private CESolver solver;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		solver = new CESolver(threads, new MersenneTwister());
+		solver.setSamples(SAMPLES);
+		solver.setElites(10);
+		solver.setMaxIterations(ITERATIONS);
+		solver.setMinVariance(0);
+		solver.setInitialNoise(1);
+		solver.setNoiseStep(0);
+		solver.setProblem(new Function() {
+			@Override
+			public int dimension() {
+				return dimension;
+			}
+
+			@Override
+			public double fitness(double[] v) {
+				double s = 0;
+				for(double x : v) {
+					s -= x * x;
+				}
+				return s;
+			}
+		});
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		solver.shutdown();
+	}
+
+	/**
+	 * @return The result of a fixed-seed run of ITERATIONS iterations.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES * ITERATIONS)
+	public SolverResult solvePerSample() throws InterruptedException {
+		solver.seed(1);
+		return solver.solve(new NormalDistribution(new MersenneTwister(2), new double[dimension], 10));
+	}
+}
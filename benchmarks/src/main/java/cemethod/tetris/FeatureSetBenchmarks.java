@@ -0,0 +1,105 @@
+package cemethod.tetris;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * FeatureSet.extract() on realistic afterstates, for the hand-written
+ * feature sets and the fused kernels of FeatureSetBuilder that replace them.
+ * A fused kernel is first checked to extract the same features as the
+ * feature set it replaces.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureSetBenchmarks {
+	/**
+	 * The number of boards per invocation.
+	 */
+	private static final int BOARDS = 4096;
+
+	@Param({"SymmetricBertsekas", "FusedBertsekas", "SymmetricMixed", "FusedMixed",
+		"Dellacherie", "FusedDellacherie"})
+	String featureSet;
+
+	@Param({"10"})
+	int width;
+
+	@Param({"20"})
+	int height;
+
+	private FeatureSet fs;
+	private List<Playfield> boards;
+	private int[] output;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Grid.setDebug(false);
+		boards = Workloads.afterstates(width, height, BOARDS);
+		if(featureSet.equals("SymmetricBertsekas")) {
+			fs = new SymmetricBertsekasFeatures();
+		} else if(featureSet.equals("FusedBertsekas")) {
+			fs = checked(FeatureSetBuilder.symmetricBertsekas().build(), new SymmetricBertsekasFeatures());
+		} else if(featureSet.equals("SymmetricMixed")) {
+			fs = new SymmetricMixedFeatures();
+		} else if(featureSet.equals("FusedMixed")) {
+			fs = checked(FeatureSetBuilder.symmetricMixed().build(), new SymmetricMixedFeatures());
+		} else if(featureSet.equals("Dellacherie")) {
+			fs = new DellacherieFeatures();
+		} else if(featureSet.equals("FusedDellacherie")) {
+			fs = checked(FeatureSetBuilder.dellacherie().build(), new DellacherieFeatures());
+		} else {
+			throw new IllegalArgumentException("Unknown feature set " + featureSet);
+		}
+		output = new int[fs.dimension(boards.get(0))];
+	}
+
+	/**
+	 * @return fused, after checking that it extracts the same features as original from all boards.
+	 */
+	private FeatureSet checked(FeatureSet fused, FeatureSet original) {
+		int dimension = original.dimension(boards.get(0));
+		if(fused.dimension(boards.get(0)) != dimension) {
+			throw new IllegalStateException(featureSet + ": dimensions differ.");
+		}
+		int[] a = new int[dimension];
+		int[] b = new int[dimension];
+		for(Playfield pf : boards) {
+			original.extract(pf, a);
+			fused.extract(pf, b);
+			if(!Arrays.equals(a, b)) {
+				throw new IllegalStateException(featureSet + ": features differ, "
+					+ Arrays.toString(a) + " and " + Arrays.toString(b));
+			}
+		}
+		return fused;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BOARDS)
+	public void extract(Blackhole bh) {
+		for(int i = 0; i < boards.size(); i++) {
+			fs.extract(boards.get(i), output);
+			bh.consume(output);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package cemethod.tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Playfield.place() on realistic boards: the place and undo of the move search,
+ * and the plain place() that makes the chosen move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayfieldBenchmarks {
+	/**
+	 * The number of boards per invocation.
+	 */
+	private static final int BOARDS = 4096;
+
+	@Param({"10"})
+	int width;
+
+	@Param({"20", "40"})
+	int height;
+
+	private MoveTable table;
+	private final List<Playfield> boards = new ArrayList<Playfield>();
+	private int[] moves;
+	private Playfield scratch;
+	private final Undo undo = new Undo();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Grid.setDebug(false);
+		table = new MoveTable(Piece.PIECES, width);
+		moves = new int[BOARDS];
+		boards.clear();
+		Workloads.boards(width, height, BOARDS, boards, moves, table);
+		scratch = new Playfield(width, height);
+	}
+
+	/**
+	 * Tries every move of the next piece on each board, as Tetris does when choosing a move.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BOARDS)
+	public void placeAndUndoAll(Blackhole bh) {
+		for(int i = 0; i < BOARDS; i++) {
+			Playfield pf = boards.get(i);
+			int piece = table.piece[moves[i]];
+			for(int m = table.first(piece); m < table.end(piece); m++) {
+				bh.consume(pf.place(table, m, undo));
+				pf.undo(undo);
+			}
+		}
+	}
+
+	/**
+	 * Makes the chosen move on a copy of each board, including the copying.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BOARDS)
+	public void place(Blackhole bh) {
+		for(int i = 0; i < BOARDS; i++) {
+			scratch.setTo(boards.get(i));
+			bh.consume(scratch.place(table.pieces[moves[i]], table.col[moves[i]]));
+		}
+	}
+}
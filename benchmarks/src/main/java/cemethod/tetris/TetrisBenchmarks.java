@@ -0,0 +1,69 @@
+package cemethod.tetris;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole games with fixed weights, the unit of work of Tetris.fitness().
+ * The games are numbered, see Tetris.playGame(), so every run plays the
+ * same games regardless of the number of threads, which is set with -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TetrisBenchmarks {
+	/**
+	 * The number of different games played.
+	 */
+	private static final int GAMES = 1024;
+
+	@Param({"6", "10"})
+	int width;
+
+	@Param({"8", "12"})
+	int height;
+
+	private Tetris tetris;
+	private double[] weights;
+
+	/**
+	 * The next game of each thread.
+	 */
+	@State(Scope.Thread)
+	public static class Game {
+		int next;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Grid.setDebug(false);
+		tetris = new Tetris(width, height, new Random(Workloads.SEED), 1, FeatureSetBuilder.symmetricMixed().build());
+		weights = Workloads.mixedWeights(width);
+	}
+
+	/**
+	 * @return The lines cleared in one game.
+	 */
+	@Benchmark
+	public int playGame(Game game) {
+		int lines = (int)tetris.playGame(weights, game.next).value;
+		game.next = (game.next + 1) % GAMES;
+		return lines;
+	}
+}
@@ -0,0 +1,83 @@
+package cemethod.tetris;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replaying recorded games: whole games, and seeking to random moves,
+ * which restores a snapshot and replays the moves after it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmarks {
+	/**
+	 * The number of games recorded.
+	 */
+	private static final int GAMES = 100;
+
+	@Param({"10"})
+	int width;
+
+	@Param({"20"})
+	int height;
+
+	@Param({"1000"})
+	int snapshotInterval;
+
+	private List<GameTrace> traces;
+	private TraceReplayer[] replayers;
+	private int next;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Grid.setDebug(false);
+		traces = Workloads.traces(width, height, snapshotInterval, GAMES);
+		replayers = new TraceReplayer[GAMES];
+		for(int i = 0; i < GAMES; i++) {
+			replayers[i] = new TraceReplayer(traces.get(i));
+		}
+		random = new Random(Workloads.SEED);
+	}
+
+	/**
+	 * @return The lines cleared in one game.
+	 */
+	@Benchmark
+	public int replay() {
+		GameTrace t = traces.get(next);
+		next = (next + 1) % GAMES;
+		TraceReplayer r = new TraceReplayer(t);
+		r.fastForward(t.moves);
+		return r.lines();
+	}
+
+	/**
+	 * @return The lines cleared up to a random move of one game.
+	 */
+	@Benchmark
+	public int seek() {
+		TraceReplayer r = replayers[next];
+		next = (next + 1) % GAMES;
+		r.seek(random.nextInt(r.moves() + 1));
+		return r.lines();
+	}
+}
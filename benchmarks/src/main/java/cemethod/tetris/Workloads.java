@@ -0,0 +1,118 @@
+package cemethod.tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fixed-seed workloads shared by the benchmarks, so that results can be
+ * compared across changes.
+ */
+final class Workloads {
+	/**
+	 * The seed of all workloads.
+	 */
+	static final long SEED = 0x5EEDL;
+
+	private Workloads() {
+	}
+
+	/**
+	 * Weights for SymmetricMixedFeatures that play reasonably well,
+	 * penalizing heights, holes, transitions and wells, the holes most.
+	 * @param width the width of the playfield.
+	 * @return The weights.
+	 */
+	static double[] mixedWeights(int width) {
+		double[] par = new double[width + 5];
+		for(int i = 0; i < par.length; i++) {
+			par[i] = -1;
+		}
+		par[width] = -8;
+		par[width + 2] = -3;
+		par[width + 3] = -3;
+		return par;
+	}
+
+	/**
+	 * Plays random pieces greedily, keeping the board low and with few holes,
+	 * with some randomness so that the boards are not too regular, and
+	 * starting over when a game ends.
+	 * @param width the width of the playfield.
+	 * @param height the height of the playfield.
+	 * @param n the number of boards.
+	 * @param boards where to store a copy of every board.
+	 * @param moves where to store the move made on each board, an index into table.
+	 * @param table the moves for the width.
+	 */
+	static void boards(int width, int height, int n, List<Playfield> boards, int[] moves, MoveTable table) {
+		Random r = new Random(SEED);
+		Playfield pf = new Playfield(width, height);
+		Undo undo = new Undo();
+		for(int i = 0; i < n; i++) {
+			if(pf.isTerminal()) {
+				pf = new Playfield(width, height);
+			}
+			int current = r.nextInt(Piece.PIECES.length);
+			int best = -1;
+			int bestVal = 0;
+			for(int m = table.first(current); m < table.end(current); m++) {
+				pf.place(table, m, undo);
+				int val = pf.isTerminal() ? Integer.MAX_VALUE :
+					4 * pf.holes() + pf.maxHeight() + pf.wellsum() + r.nextInt(3);
+				pf.undo(undo);
+				if(best < 0 || val < bestVal) {
+					bestVal = val;
+					best = m;
+				}
+			}
+			Playfield copy = new Playfield(width, height);
+			copy.setTo(pf);
+			boards.add(copy);
+			moves[i] = best;
+			pf.place(table.pieces[best], table.col[best]);
+		}
+	}
+
+	/**
+	 * Records games played with mixedWeights().
+	 * @param width the width of the playfield.
+	 * @param height the height of the playfield.
+	 * @param snapshotInterval the number of moves between snapshots.
+	 * @param games the number of games to record.
+	 * @return The traces.
+	 */
+	static List<GameTrace> traces(int width, int height, int snapshotInterval, int games) {
+		Tetris tetris = new Tetris(width, height, new Random(SEED), 1, new SymmetricMixedFeatures());
+		double[] par = mixedWeights(width);
+		List<GameTrace> traces = new ArrayList<GameTrace>();
+		for(int i = 0; i < games; i++) {
+			TraceRecorder recorder = new TraceRecorder(width, height, snapshotInterval);
+			tetris.runTrial(par, false, recorder);
+			traces.add(recorder.toTrace());
+		}
+		return traces;
+	}
+
+	/**
+	 * @param width the width of the playfield.
+	 * @param height the height of the playfield.
+	 * @param n the number of boards.
+	 * @return The boards of boards(), with the last piece placed.
+	 */
+	static List<Playfield> afterstates(int width, int height, int n) {
+		MoveTable table = new MoveTable(Piece.PIECES, width);
+		List<Playfield> before = new ArrayList<Playfield>();
+		int[] moves = new int[n];
+		boards(width, height, n, before, moves, table);
+		List<Playfield> after = new ArrayList<Playfield>();
+		for(int i = 0; i < n; i++) {
+			Playfield pf = before.get(i);
+			if(!pf.isTerminal()) {
+				pf.place(table.pieces[moves[i]], table.col[moves[i]]);
+				after.add(pf);
+			}
+		}
+		return after;
+	}
+}
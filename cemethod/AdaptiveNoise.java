@@ -0,0 +1,96 @@
+package cemethod;
+
+/**
+ * Noise driven by how the run is going. While the mean elite performance
+ * improves, the noise decays geometrically, so that the distribution can
+ * narrow in on the optimum. When it stops improving and the spread of the
+ * elites, estimated as the variance of the distribution minus the noise last
+ * added, has fallen below the noise, the distribution is collapsing around
+ * a point that is not getting better, and the noise grows again. When it
+ * stops improving with the elites still spread out, the noise is kept.
+ * The noise always stays between minNoise and maxNoise.
+ */
+public class AdaptiveNoise implements NoiseSchedule {
+	private final double initialNoise;
+	private double minNoise;
+	private double maxNoise;
+	private double decay = 0.8;
+	private double growth = 1.5;
+	private double tolerance = 0.01;
+	/**
+	 * The noise last returned.
+	 */
+	private double noise;
+	/**
+	 * The mean elite performance of the last iteration, NaN before the first.
+	 */
+	private double lastEliteMean;
+
+	/**
+	 * @param initialNoise the noise of the first iteration, also the maximal noise
+	 * until setMaxNoise() is called.
+	 */
+	public AdaptiveNoise(double initialNoise) {
+		this.initialNoise = initialNoise;
+		maxNoise = initialNoise;
+		start();
+	}
+
+	@Override
+	public void start() {
+		noise = initialNoise;
+		lastEliteMean = Double.NaN;
+	}
+
+	@Override
+	public double noise(IterationSummary last, Distribution d) {
+		if(!Double.isNaN(lastEliteMean)) {
+			double spread = d.getVar() - noise;
+			if(last.eliteMean - lastEliteMean > tolerance * Math.abs(lastEliteMean)) {
+				noise *= decay;
+			} else if(spread < noise) {
+				noise *= growth;
+			}
+			noise = Math.max(minNoise, Math.min(maxNoise, noise));
+		}
+		lastEliteMean = last.eliteMean;
+		return noise;
+	}
+
+	/**
+	 * @param minNoise the smallest noise to add, 0 by default.
+	 */
+	public void setMinNoise(double minNoise) {
+		this.minNoise = minNoise;
+	}
+
+	/**
+	 * @param maxNoise the largest noise to add, the initial noise by default.
+	 */
+	public void setMaxNoise(double maxNoise) {
+		this.maxNoise = maxNoise;
+	}
+
+	/**
+	 * @param decay the factor by which the noise shrinks per improving iteration, 0.8 by default.
+	 */
+	public void setDecay(double decay) {
+		this.decay = decay;
+	}
+
+	/**
+	 * @param growth the factor by which the noise grows per collapsing iteration, 1.5 by default.
+	 */
+	public void setGrowth(double growth) {
+		this.growth = growth;
+	}
+
+	/**
+	 * An iteration improves if the mean elite performance grows by more than
+	 * this fraction of its absolute value.
+	 * @param tolerance the relative improvement, 0.01 by default.
+	 */
+	public void setTolerance(double tolerance) {
+		this.tolerance = tolerance;
+	}
+}
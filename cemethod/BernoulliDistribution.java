@@ -0,0 +1,183 @@
+package cemethod;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Independent bits, each set with its own probability, for CESolver.solveBinary().
+ * Samples are packed 64 bits to a long, see BinaryFunction.
+ * <p>
+ * The probabilities are rounded to multiples of 2^-16 for sampling, and each
+ * long is drawn from 16 random longs at most, rather than one random number per
+ * bit: if the binary digits of p are 0.b_1 b_2 ... b_16, then starting from
+ * x = 0 and taking x = x | r for every digit b_j = 1 and x = x &amp; r for every
+ * b_j = 0, from b_16 to b_1, with r a fresh random long each time, sets each bit
+ * of x with probability p. The digits of the 64 bits of a long are kept as 16
+ * masks, so the choice between | and &amp; is made for all bits at once.
+ * <p>
+ * Fitting counts the elites with a set bit in every column by adding the longs
+ * of the elites in bit-sliced counters: counter plane j holds bit j of the
+ * count of each of the 64 columns, and a long is added with a ripple of
+ * &amp; and ^ through the planes.
+ */
+public class BernoulliDistribution {
+	/**
+	 * The number of binary digits of the probabilities when sampling.
+	 */
+	private static final int PRECISION = 16;
+
+	private final RandomGenerator r;
+	/**
+	 * The number of bits.
+	 */
+	private final int length;
+	/**
+	 * The number of longs of a sample.
+	 */
+	private final int words;
+	/**
+	 * The probability of each bit being set.
+	 */
+	private final double[] p;
+	/**
+	 * Bit i of digits[w * PRECISION + j] is binary digit j + 1 of the probability
+	 * of bit 64 * w + i, rounded to PRECISION digits.
+	 */
+	private final long[] digits;
+	/**
+	 * The bits whose probability rounds to 1, which the digits cannot express.
+	 */
+	private final long[] ones;
+
+	/**
+	 * @param r the source of randomness when sampling.
+	 * @param length the number of bits.
+	 * @param p the initial probability of every bit being set.
+	 */
+	public BernoulliDistribution(RandomGenerator r, int length, double p) {
+		this(r, filled(length, p));
+	}
+
+	/**
+	 * @param r the source of randomness when sampling.
+	 * @param p the initial probability of each bit being set.
+	 */
+	public BernoulliDistribution(RandomGenerator r, double[] p) {
+		this.r = r;
+		length = p.length;
+		words = (length + 63) / 64;
+		this.p = p.clone();
+		digits = new long[words * PRECISION];
+		ones = new long[words];
+		quantize();
+	}
+
+	private static double[] filled(int length, double p) {
+		double[] ret = new double[length];
+		Arrays.fill(ret, p);
+		return ret;
+	}
+
+	/**
+	 * @return The number of bits.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return The probability of each bit being set.
+	 */
+	public double[] getProbabilities() {
+		return p.clone();
+	}
+
+	/**
+	 * @return The mean variance of the bits, p (1 - p), between 0 and 1/4.
+	 */
+	public double getVar() {
+		double sum = 0;
+		for(double x : p) {
+			sum += x * (1 - x);
+		}
+		return sum / length;
+	}
+
+	/**
+	 * Moves the probabilities towards the frequencies of set bits in the elites:
+	 * p = smoothing * frequency + (1 - smoothing) * p. Without smoothing,
+	 * a bit that is the same in all elites never changes again.
+	 * @param elites the elite samples, packed as by sample().
+	 * @param smoothing the weight of the elites, between 0 and 1.
+	 */
+	public void fitTo(long[][] elites, double smoothing) {
+		int planes = 32 - Integer.numberOfLeadingZeros(elites.length);
+		long[] count = new long[planes];
+		for(int w = 0; w < words; w++) {
+			Arrays.fill(count, 0);
+			for(long[] e : elites) {
+				// Adds e[w] to the 64 counters, carrying into higher planes.
+				long carry = e[w];
+				for(int j = 0; carry != 0; j++) {
+					long t = count[j] & carry;
+					count[j] ^= carry;
+					carry = t;
+				}
+			}
+			for(int b = 0, i = 64 * w; b < 64 && i < length; b++, i++) {
+				int n = 0;
+				for(int j = 0; j < planes; j++) {
+					n |= (int)(count[j] >>> b & 1) << j;
+				}
+				p[i] = smoothing * n / elites.length + (1 - smoothing) * p[i];
+			}
+		}
+		quantize();
+	}
+
+	/**
+	 * @return A sample, with bit i set with the probability of bit i.
+	 */
+	public long[] sample() {
+		long[] ret = new long[words];
+		for(int w = 0; w < words; w++) {
+			long x = 0;
+			int base = w * PRECISION;
+			// From the least significant digit to the most significant.
+			for(int j = PRECISION - 1; j >= 0; j--) {
+				long m = digits[base + j];
+				if(x == 0 && m == 0) {
+					// x & r would be 0 anyway.
+					continue;
+				}
+				long rand = r.nextLong();
+				x = (x | rand) & m | (x & rand) & ~m;
+			}
+			ret[w] = x | ones[w];
+		}
+		return ret;
+	}
+
+	/**
+	 * Sets digits and ones from p.
+	 */
+	private void quantize() {
+		Arrays.fill(digits, 0);
+		Arrays.fill(ones, 0);
+		for(int i = 0; i < length; i++) {
+			long q = Math.round(p[i] * (1 << PRECISION));
+			long bit = 1L << (i & 63);
+			if(q >= 1 << PRECISION) {
+				ones[i >>> 6] |= bit;
+				continue;
+			}
+			int base = (i >>> 6) * PRECISION;
+			for(int j = 0; j < PRECISION; j++) {
+				if((q >>> (PRECISION - 1 - j) & 1) != 0) {
+					digits[base + j] |= bit;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package cemethod;
+
+/**
+ * A function of a vector of bits, to optimize with CESolver.solveBinary().
+ * The bits are packed into longs: bit i is bit i % 64 of bits[i / 64],
+ * and the bits past length() in the last long are 0. Note:
+ * <b>All functions must be thread-safe.</b>
+ */
+public interface BinaryFunction {
+	/**
+	 * @return The number of bits of the problem space.
+	 */
+	int length();
+
+	/**
+	 * This function may not mutate bits.
+	 * @param bits the bits to evaluate, (length() + 63) / 64 longs.
+	 * @return The value of the function at bits.
+	 */
+	double fitness(long[] bits);
+}
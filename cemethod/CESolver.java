@@ -4,14 +4,62 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.stat.correlation.SpearmansCorrelation;
 
 /**
  * This class implements the noisy cross-entropy method for optimization, see e.g.
  * http://ie.technion.ac.il/CE/files/papers/Learning%20Tetris%20Using%20the%20Noisy%20Cross-Entropy%20Method.pdf .
  */
 public final class CESolver {
+	/**
+	 * How often, in milliseconds, the workers are checked for timed out
+	 * evaluations and the slowest evaluations are dispatched again.
+	 */
+	private static final long SUPERVISION_INTERVAL = 10;
+
+	/**
+	 * The evaluations of one iteration of solve(), or of one call to evaluateParameters().
+	 */
+	private static final class Round {
+		/**
+		 * Identifies the round, to tell its results from late results of earlier rounds.
+		 */
+		final long id;
+		/**
+		 * Trials per parameter vector.
+		 */
+		final int trials;
+		/**
+		 * The problem dispatched for each slot, index * trials + trial.
+		 */
+		final Subproblem[] tasks;
+		/**
+		 * True for the slots with a result.
+		 */
+		final boolean[] done;
+		/**
+		 * True for the slots dispatched a second time.
+		 */
+		final boolean[] copied;
+		int dispatched;
+		int received;
+
+		Round(long id, int vectors, int trials) {
+			this.id = id;
+			this.trials = trials;
+			tasks = new Subproblem[vectors * trials];
+			done = new boolean[tasks.length];
+			copied = new boolean[tasks.length];
+		}
+
+		int slot(int index, int trial) {
+			return index * trials + (trial < 0 ? 0 : trial);
+		}
+	}
+
 	/**
 	 * Queue to send problems to workers.
 	 */
@@ -40,10 +88,42 @@ public final class CESolver {
 	 * Minimal variance before stopping.
 	 */
 	private double minVariance;
+	/**
+	 * Maximal number of samples evaluated before stopping.
+	 */
+	private long maxEvaluations = Long.MAX_VALUE;
+	/**
+	 * Wall-clock time in milliseconds after which no new samples are evaluated, 0 for no limit.
+	 */
+	private long timeLimit;
+	/**
+	 * Number of iterations without improvement before stopping, 0 to never stop on a plateau.
+	 */
+	private int plateauWindow;
+	/**
+	 * Smallest change in performance counted as an improvement.
+	 */
+	private double plateauTolerance;
 	/**
 	 * Problem considered.
 	 */
 	private Function problem;
+	/**
+	 * Problem considered by solveBinary().
+	 */
+	private BinaryFunction binaryProblem;
+	/**
+	 * Weight of the elites when fitting a BernoulliDistribution.
+	 */
+	private double smoothing = 0.7;
+	/**
+	 * Changes the problem between iterations, or null to keep it.
+	 */
+	private Curriculum curriculum;
+	/**
+	 * Told about every iteration, or null.
+	 */
+	private IterationListener iterationListener;
 	/**
 	 * RNG used.
 	 */
@@ -56,10 +136,51 @@ public final class CESolver {
 	 * Noise added first iteration.
 	 */
 	private double initialNoise;
+	/**
+	 * Decides the noise, or null for the linear schedule of initialNoise and noiseStep.
+	 */
+	private NoiseSchedule noiseSchedule;
+	/**
+	 * Chooses which drawn candidates to evaluate, or null to evaluate all samples drawn.
+	 */
+	private Surrogate surrogate;
+	/**
+	 * Candidates drawn per sample evaluated, when screening with the surrogate.
+	 */
+	private int oversampling = 4;
+	/**
+	 * Fraction of the samples chosen at random rather than by the surrogate.
+	 */
+	private double explorationFraction = 0.2;
+	/**
+	 * Time in milliseconds after which an evaluation is given the timeout penalty, 0 for no limit.
+	 */
+	private long evaluationTimeout;
+	/**
+	 * Performance of an evaluation that timed out.
+	 */
+	private double timeoutPenalty = Double.NEGATIVE_INFINITY;
+	/**
+	 * Fraction of the evaluations of an iteration after which the slowest
+	 * outstanding ones are dispatched again, 0 to never.
+	 */
+	private double speculationThreshold;
+	/**
+	 * The number of rounds of evaluations started.
+	 */
+	private long rounds;
+	/**
+	 * The number of workers replaced after timing out or dying.
+	 */
+	private int replacedWorkers;
 	/**
 	 * Amount of debug information to show.
 	 */
 	private int verbosity;
+	/**
+	 * True to keep samples as seeds of a SeededDistribution rather than as vectors.
+	 */
+	private boolean seedCompressed;
 
 	/**
 	 * Shuts down all threads used by this solver.
@@ -72,35 +193,146 @@ public final class CESolver {
 
 	/**
 	 * @param initial The distribution to start with.
-	 * @return The vector giving the maximal found value.
+	 * @return The vector giving the maximal found value, and why the solver stopped.
 	 * @throws InterruptedException In case it is interrupted while working.
+	 * @throws EvaluationException if the problem throws while evaluating a sample.
 	 */
-	public double[] solve(Distribution initial) throws InterruptedException {
+	public SolverResult solve(Distribution initial) throws InterruptedException {
+		SeededDistribution seeded = null;
+		if(seedCompressed) {
+			if(!(initial instanceof SeededDistribution)) {
+				throw new IllegalArgumentException("Seed compression needs a SeededDistribution.");
+			}
+			seeded = (SeededDistribution)initial;
+		}
+		if(surrogate != null) {
+			if(seedCompressed) {
+				throw new IllegalArgumentException("A surrogate needs the samples as vectors.");
+			}
+			surrogate.clear();
+		}
+		// True once the surrogate has been fitted to the current problem.
+		boolean screen = false;
+		long startTime = System.nanoTime();
+		long evaluations = 0;
 		double[] best = null;
+		double bestPerformance = Double.NEGATIVE_INFINITY;
+		SolverResult.StopReason reason = null;
+		// Best and mean elite performance of the last plateauWindow + 1 iterations.
+		double[] bestHistory = new double[plateauWindow + 1];
+		double[] eliteHistory = new double[plateauWindow + 1];
 		Distribution d = initial;
+		NoiseSchedule schedule = noiseSchedule != null ? noiseSchedule : new LinearNoise(initialNoise, noiseStep);
+		schedule.start();
 		final int save = 1; // Save the best vector found. Values > 1 can also be tried.
+		// Keep a few problems queued per worker, so that workers are never idle
+		// while still being able to stop dispatching at the deadline.
+		final int maxInFlight = 2 * workers.size();
+		// The trials of a TrialFunction are evaluated separately, and then combined.
+		int trials = trialsPerEvaluation();
+		double[][] results = new double[samples][trials];
+		boolean[][] censored = new boolean[samples][trials];
+		int[] resultCount = new int[samples];
+		boolean[] timedOut = new boolean[samples];
 		List<Point> sampleList = new ArrayList<Point>();
 		for(int i = 0; i < samples; i++) {
-			sampleList.add(new Point(d.sample()));
+			sampleList.add(draw(d, seeded));
 		}
 
-		for(int iter = 1; iter <= maxIterations && d.getVar() > minVariance; iter++) {
-			for(int i = save; i < samples; i++) {
-				sampleList.set(i, new Point(d.sample()));
+		int iter = 1;
+		// The first iteration of the plateau window, moved when the curriculum changes the problem.
+		int windowStart = 1;
+		while(true) {
+			if(iter > maxIterations) {
+				reason = SolverResult.StopReason.MAX_ITERATIONS;
+				break;
 			}
-			for(int i = 0; i < samples; i++) {
-				problemQueue.add(new Subproblem(problem, sampleList.get(i).vec, i));
+			if(d.getVar() <= minVariance) {
+				reason = SolverResult.StopReason.MIN_VARIANCE;
+				break;
+			}
+			for(int i = 0; i < save; i++) {
+				sampleList.get(i).predicted = Double.NaN;
+			}
+			if(screen) {
+				prescreen(d, sampleList, save);
+			} else {
+				for(int i = save; i < samples; i++) {
+					sampleList.set(i, draw(d, seeded));
+				}
 			}
 			for(int i = 0; i < samples; i++) {
-				Perf perf = resultQueue.take();
-				sampleList.get(perf.index).performance = perf.performance;
+				sampleList.get(i).performance = Double.NEGATIVE_INFINITY;
+				resultCount[i] = 0;
+				timedOut[i] = false;
+			}
+			long iterStart = System.nanoTime();
+			long iterEvaluations = evaluations;
+			Round round = new Round(++rounds, samples, trials);
+			// Counted in samples.
+			int completed = 0;
+			while(true) {
+				while(round.dispatched < samples * trials && round.dispatched - round.received < maxInFlight) {
+					if(round.dispatched % trials == 0) {
+						// Only stop before starting on a new sample.
+						reason = budgetExhausted(evaluations, startTime);
+						if(reason != null) { break; }
+						evaluations++;
+					}
+					int index = round.dispatched / trials;
+					int trial = problem instanceof TrialFunction ? round.dispatched % trials : -1;
+					Point p = sampleList.get(index);
+					dispatch(round, p.vec != null ? new Subproblem(problem, p.vec, index, trial)
+						: new Subproblem(problem, seeded, p.seed, index, trial));
+				}
+				if(round.received == round.dispatched) { break; }
+				Perf perf = nextResult(round);
+				results[perf.index][trials == 1 ? 0 : perf.trial] = perf.performance;
+				censored[perf.index][trials == 1 ? 0 : perf.trial] = perf.censored;
+				timedOut[perf.index] |= perf.timedOut;
+				if(++resultCount[perf.index] == trials) {
+					sampleList.get(perf.index).performance =
+						combine(results[perf.index], censored[perf.index], timedOut[perf.index]);
+					completed++;
+				}
 			}
+			// Drop copies of evaluations that finished elsewhere first.
+			problemQueue.clear();
 
 			Collections.sort(sampleList);
-			double noise = initialNoise + noiseStep * (iter - 1);
+			if(completed < samples) {
+				// Out of budget. The best completed sample of the partial iteration,
+				// paid for like any other, is kept if it beats the best known.
+				if(completed > 0 && (best == null || sampleList.get(0).performance > bestPerformance)) {
+					materialize(sampleList.subList(0, 1), seeded);
+					best = sampleList.get(0).vec;
+					bestPerformance = sampleList.get(0).performance;
+				}
+				break;
+			}
 			List<Point> eliteSamples = sampleList.subList(0, elites);
-			d.fitTo(toDoubleArrayArray(eliteSamples), noise > 0 ? noise : 0);
+			double eliteMean = 0;
+			for(Point p : eliteSamples) {
+				eliteMean += p.performance / elites;
+			}
+			double correlation = Double.NaN;
+			if(surrogate != null) {
+				if(screen) {
+					correlation = rankCorrelation(sampleList);
+				}
+				// Until a sample has a finite performance, there is nothing to fit.
+				if(updateSurrogate(sampleList)) {
+					screen = true;
+				}
+			}
+			long now = System.nanoTime();
+			IterationSummary summary = new IterationSummary(iter, sampleList.get(0).performance,
+				eliteMean, evaluations - iterEvaluations, now - iterStart, now - startTime, correlation);
+			// Seeds must be turned into vectors before the distribution changes.
+			materialize(eliteSamples, seeded);
+			d.fitTo(toDoubleArrayArray(eliteSamples), schedule.noise(summary, d));
 			best = sampleList.get(0).vec;
+			bestPerformance = sampleList.get(0).performance;
 			if(verbosity > 0) {
 				System.out.println("Done with iteration " + iter);
 				System.out.println("Performance of samples this iteration:");
@@ -108,9 +340,414 @@ public final class CESolver {
 					System.out.printf("%.2e ", sampleList.get(i).performance);
 				}
 				System.out.printf("%.2e\n", sampleList.get(samples-1).performance);
+				if(!Double.isNaN(correlation)) {
+					System.out.printf("Surrogate rank correlation: %.3f\n", correlation);
+				}
+			}
+			if(iterationListener != null) {
+				iterationListener.iterationDone(summary);
+			}
+			if(plateauWindow > 0) {
+				bestHistory[iter % bestHistory.length] = bestPerformance;
+				eliteHistory[iter % eliteHistory.length] = eliteMean;
+				if(iter - windowStart >= plateauWindow &&
+					!improved(bestHistory, iter) && !improved(eliteHistory, iter)) {
+					iter++;
+					reason = SolverResult.StopReason.PLATEAU;
+					break;
+				}
+			}
+			if(curriculum != null) {
+				Function next = curriculum.next(problem, summary);
+				if(next != problem) {
+					if(next.dimension() != problem.dimension()) {
+						throw new IllegalStateException("Curriculum changed the dimension of the problem.");
+					}
+					problem = next;
+					trials = trialsPerEvaluation();
+					results = new double[samples][trials];
+					censored = new boolean[samples][trials];
+					// Performances on the old problem are not comparable with the new ones.
+					windowStart = iter + 1;
+					if(surrogate != null) {
+						surrogate.clear();
+						screen = false;
+					}
+					if(verbosity > 0) {
+						System.out.println("Curriculum changed the problem after iteration " + iter);
+					}
+				}
+			}
+			iter++;
+		}
+		return new SolverResult(best, bestPerformance, reason, iter - 1, evaluations,
+			System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Solves the binary problem with the cross-entropy method for bits: each
+	 * iteration, the distribution is moved towards the frequencies of set bits
+	 * in the elites, see setSmoothing(). The limits on iterations, evaluations
+	 * and time, the minimal variance, the evaluation timeout and speculation
+	 * apply as for solve(), and the iteration listener is told about every
+	 * iteration. The noise, plateau detection, curriculum and surrogate do not.
+	 * @param initial The distribution to start with, of the length of the binary problem.
+	 * @return The bits giving the maximal found value, in bestBits, and why the solver stopped.
+	 * @throws InterruptedException In case it is interrupted while working.
+	 * @throws EvaluationException if the problem throws while evaluating a sample.
+	 */
+	public SolverResult solveBinary(BernoulliDistribution initial) throws InterruptedException {
+		if(binaryProblem == null || binaryProblem.length() != initial.length()) {
+			throw new IllegalArgumentException("The distribution does not match the binary problem.");
+		}
+		long startTime = System.nanoTime();
+		long evaluations = 0;
+		long[] best = null;
+		double bestPerformance = Double.NEGATIVE_INFINITY;
+		SolverResult.StopReason reason = null;
+		BernoulliDistribution d = initial;
+		final int save = 1;
+		final int maxInFlight = 2 * workers.size();
+		List<Point> sampleList = new ArrayList<Point>();
+		for(int i = 0; i < samples; i++) {
+			sampleList.add(new Point(d.sample()));
+		}
+
+		int iter = 1;
+		while(true) {
+			if(iter > maxIterations) {
+				reason = SolverResult.StopReason.MAX_ITERATIONS;
+				break;
+			}
+			if(d.getVar() <= minVariance) {
+				reason = SolverResult.StopReason.MIN_VARIANCE;
+				break;
+			}
+			for(int i = save; i < samples; i++) {
+				sampleList.set(i, new Point(d.sample()));
+			}
+			for(Point p : sampleList) {
+				p.performance = Double.NEGATIVE_INFINITY;
+			}
+			long iterStart = System.nanoTime();
+			long iterEvaluations = evaluations;
+			Round round = new Round(++rounds, samples, 1);
+			while(true) {
+				while(round.dispatched < samples && round.dispatched - round.received < maxInFlight) {
+					reason = budgetExhausted(evaluations, startTime);
+					if(reason != null) { break; }
+					evaluations++;
+					int index = round.dispatched;
+					dispatch(round, new Subproblem(binaryProblem, sampleList.get(index).bits, index));
+				}
+				if(round.received == round.dispatched) { break; }
+				Perf perf = nextResult(round);
+				sampleList.get(perf.index).performance = perf.performance;
+			}
+			problemQueue.clear();
+
+			Collections.sort(sampleList);
+			if(round.received < samples) {
+				// Out of budget. The best evaluated sample of the partial iteration
+				// is kept if it beats the best known.
+				if(round.received > 0 && (best == null || sampleList.get(0).performance > bestPerformance)) {
+					best = sampleList.get(0).bits;
+					bestPerformance = sampleList.get(0).performance;
+				}
+				break;
+			}
+			long[][] eliteBits = new long[elites][];
+			double eliteMean = 0;
+			for(int i = 0; i < elites; i++) {
+				eliteBits[i] = sampleList.get(i).bits;
+				eliteMean += sampleList.get(i).performance / elites;
+			}
+			d.fitTo(eliteBits, smoothing);
+			best = sampleList.get(0).bits;
+			bestPerformance = sampleList.get(0).performance;
+			if(verbosity > 0) {
+				System.out.println("Done with iteration " + iter);
+				System.out.printf("Best %.2e, elite %.2e, variance %.2e\n", bestPerformance,
+					sampleList.get(elites - 1).performance, d.getVar());
+			}
+			if(iterationListener != null) {
+				long now = System.nanoTime();
+				iterationListener.iterationDone(new IterationSummary(iter, bestPerformance, eliteMean,
+					evaluations - iterEvaluations, now - iterStart, now - startTime, Double.NaN));
+			}
+			iter++;
+		}
+		return new SolverResult(null, best, bestPerformance, reason, iter - 1, evaluations,
+			System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Sends a problem to the workers.
+	 * @param round the round the problem belongs to.
+	 * @param p the problem, for the next slot of the round.
+	 */
+	private void dispatch(Round round, Subproblem p) {
+		p.round = round.id;
+		round.tasks[round.dispatched++] = p;
+		problemQueue.add(p);
+	}
+
+	/**
+	 * Waits for the next result of a round. Meanwhile, evaluations that take
+	 * longer than the evaluation timeout are given the timeout penalty, and
+	 * their workers replaced, and once most results are in, the slowest
+	 * outstanding evaluations are dispatched again. Only the first result
+	 * of each slot is returned.
+	 * @param round the round.
+	 * @return The result of a slot of the round without a result so far.
+	 * @throws InterruptedException if interrupted while waiting.
+	 * @throws EvaluationException if an evaluation threw.
+	 */
+	private Perf nextResult(Round round) throws InterruptedException {
+		boolean supervised = evaluationTimeout > 0 || speculationThreshold > 0;
+		long lastSupervision = System.nanoTime();
+		while(true) {
+			Perf perf = supervised ? resultQueue.poll(SUPERVISION_INTERVAL, TimeUnit.MILLISECONDS)
+				: resultQueue.take();
+			if(supervised && System.nanoTime() - lastSupervision >= SUPERVISION_INTERVAL * 1000000) {
+				superviseWorkers(round);
+				speculate(round);
+				lastSupervision = System.nanoTime();
+			}
+			if(perf == null || perf.round != round.id) {
+				continue;
+			}
+			int slot = round.slot(perf.index, perf.trial);
+			if(round.done[slot]) {
+				continue;
+			}
+			if(perf.error != null) {
+				problemQueue.clear();
+				throw new EvaluationException("Evaluation of sample " + perf.index +
+					(perf.trial >= 0 ? ", trial " + perf.trial : "") + " failed.", perf.error);
+			}
+			round.done[slot] = true;
+			round.received++;
+			return perf;
+		}
+	}
+
+	/**
+	 * Reports evaluations that exceed the evaluation timeout as timed out, which
+	 * gives their samples the timeout penalty, and replaces their workers, as
+	 * well as workers that died.
+	 * @param round the current round.
+	 */
+	private void superviseWorkers(Round round) {
+		long now = System.nanoTime();
+		for(int i = 0; i < workers.size(); i++) {
+			CEWorker w = workers.get(i);
+			Subproblem p = w.current();
+			if(evaluationTimeout > 0 && p != null && now - p.started > evaluationTimeout * 1000000) {
+				if(p.round == round.id) {
+					Perf penalty = new Perf();
+					penalty.round = p.round;
+					penalty.index = p.index;
+					penalty.trial = p.trial;
+					penalty.performance = timeoutPenalty;
+					penalty.timedOut = true;
+					resultQueue.add(penalty);
+				}
+				w.retire();
+			} else if(w.isAlive()) {
+				continue;
+			}
+			if(verbosity > 0) {
+				System.out.println("Replacing worker " + w.getName());
+			}
+			CEWorker replacement = new CEWorker(problemQueue, resultQueue);
+			workers.set(i, replacement);
+			replacement.start();
+			replacedWorkers++;
+		}
+	}
+
+	/**
+	 * Once the speculation threshold of the results of a round are in and
+	 * workers are idle, dispatches the evaluations that started first among
+	 * the outstanding ones again, once each. The first result of each is used.
+	 * Trials that are not repeatable are not copied.
+	 * @param round the current round.
+	 */
+	private void speculate(Round round) {
+		if(speculationThreshold <= 0 || round.dispatched < round.tasks.length ||
+			round.received < speculationThreshold * round.tasks.length || !problemQueue.isEmpty()) {
+			return;
+		}
+		int idle = workers.size() - (round.tasks.length - round.received);
+		for(int slot = 0; slot < round.tasks.length && idle > 0; slot++) {
+			Subproblem p = round.tasks[slot];
+			if(!round.done[slot] && !round.copied[slot] && p.started != 0 &&
+				(p.trial < 0 || ((TrialFunction)p.problem).repeatableTrials())) {
+				round.copied[slot] = true;
+				problemQueue.add(p.copy());
+				idle--;
+			}
+		}
+	}
+
+	/**
+	 * @param d the distribution to draw from.
+	 * @param seeded d if samples are kept as seeds, else null.
+	 * @return A new sample.
+	 */
+	private Point draw(Distribution d, SeededDistribution seeded) {
+		if(seeded != null) {
+			return new Point(r.nextLong());
+		}
+		return new Point(d.sample());
+	}
+
+	/**
+	 * Draws oversampling candidates per sample, and keeps those the surrogate
+	 * predicts to be best, except for the exploration fraction, which is
+	 * chosen at random among the other candidates.
+	 * @param d the distribution to draw from.
+	 * @param sampleList the samples, of which those from index from on are replaced.
+	 * @param from the first sample to replace.
+	 */
+	private void prescreen(Distribution d, List<Point> sampleList, int from) {
+		int needed = samples - from;
+		List<Point> candidates = new ArrayList<Point>(needed * oversampling);
+		for(int i = 0; i < needed * oversampling; i++) {
+			Point p = draw(d, null);
+			p.predicted = surrogate.predict(p.vec);
+			// Sorted by the prediction until evaluated.
+			p.performance = p.predicted;
+			candidates.add(p);
+		}
+		Collections.sort(candidates);
+		int exploit = needed - (int)Math.round(explorationFraction * needed);
+		for(int i = 0; i < needed; i++) {
+			if(i >= exploit) {
+				// Partial Fisher-Yates shuffle of the candidates not exploited.
+				Collections.swap(candidates, i, i + r.nextInt(candidates.size() - i));
+			}
+			sampleList.set(from + i, candidates.get(i));
+		}
+	}
+
+	/**
+	 * Fits the surrogate to the evaluated samples with finite performance.
+	 * @param sampleList the samples.
+	 * @return True if the surrogate was fitted, false if no sample had a finite performance.
+	 */
+	private boolean updateSurrogate(List<Point> sampleList) {
+		List<Point> finite = new ArrayList<Point>(sampleList.size());
+		for(Point p : sampleList) {
+			if(!Double.isInfinite(p.performance) && !Double.isNaN(p.performance)) {
+				finite.add(p);
+			}
+		}
+		if(finite.isEmpty()) {
+			return false;
+		}
+		double[] performances = new double[finite.size()];
+		for(int i = 0; i < performances.length; i++) {
+			performances[i] = finite.get(i).performance;
+		}
+		surrogate.update(toDoubleArrayArray(finite), performances);
+		return true;
+	}
+
+	/**
+	 * @param points evaluated points, some with predictions.
+	 * @return The Spearman rank correlation between the performance and the
+	 * prediction of the points with a prediction, or NaN if fewer than three.
+	 */
+	private static double rankCorrelation(List<Point> points) {
+		int n = 0;
+		for(Point p : points) {
+			if(!Double.isNaN(p.predicted)) { n++; }
+		}
+		if(n < 3) {
+			return Double.NaN;
+		}
+		double[] performance = new double[n];
+		double[] predicted = new double[n];
+		n = 0;
+		for(Point p : points) {
+			if(!Double.isNaN(p.predicted)) {
+				performance[n] = p.performance;
+				predicted[n++] = p.predicted;
+			}
+		}
+		return new SpearmansCorrelation().correlation(performance, predicted);
+	}
+
+	/**
+	 * Regenerates the vectors of points only known by their seeds.
+	 * @param points the points.
+	 * @param seeded the distribution the seeds were drawn for, or null if samples are kept as vectors.
+	 */
+	private static void materialize(List<Point> points, SeededDistribution seeded) {
+		for(Point p : points) {
+			if(p.vec == null) {
+				p.vec = seeded.sample(p.seed);
 			}
 		}
-		return best;
+	}
+
+	/**
+	 * @return The number of trials to dispatch per evaluation of the problem.
+	 */
+	private int trialsPerEvaluation() {
+		if(problem instanceof TrialFunction) {
+			return ((TrialFunction)problem).trials();
+		}
+		return 1;
+	}
+
+	/**
+	 * @param results the results of all trials of a vector.
+	 * @param censored for each trial, true if it was stopped before it ended.
+	 * @param timedOut true if any trial timed out.
+	 * @return The fitness of the vector, the timeout penalty if a trial timed out.
+	 */
+	private double combine(double[] results, boolean[] censored, boolean timedOut) {
+		if(timedOut) {
+			// The penalty is not a trial result, so it is not combined with the others.
+			return timeoutPenalty;
+		}
+		if(problem instanceof TrialFunction) {
+			return ((TrialFunction)problem).combine(results, censored);
+		}
+		return results[0];
+	}
+
+	/**
+	 * @param evaluations the number of samples dispatched so far.
+	 * @param startTime the value of System.nanoTime() when solving started.
+	 * @return the reason to stop dispatching new samples, or null if there is budget left.
+	 */
+	private SolverResult.StopReason budgetExhausted(long evaluations, long startTime) {
+		if(evaluations >= maxEvaluations) {
+			return SolverResult.StopReason.MAX_EVALUATIONS;
+		}
+		if(timeLimit > 0 && System.nanoTime() - startTime >= timeLimit * 1000000) {
+			return SolverResult.StopReason.TIME_LIMIT;
+		}
+		return null;
+	}
+
+	/**
+	 * @param history circular buffer of the last history.length values, indexed by iteration.
+	 * @param iter the current iteration.
+	 * @return True if some value of the window improved on the oldest one by more than plateauTolerance.
+	 */
+	private boolean improved(double[] history, int iter) {
+		double oldest = history[(iter + 1) % history.length];
+		for(double x : history) {
+			if(x - oldest > plateauTolerance) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	private static double[][] toDoubleArrayArray(List<Point> list) {
@@ -129,25 +766,35 @@ public final class CESolver {
 	 * @param trials the number of trials to do. At least 2.
 	 * @return the mean and standard deviation of the trials.
 	 * @throws InterruptedException if interrupted.
+	 * @throws EvaluationException if the problem throws.
 	 */
 	public EvaluationResult evaluateParameters(double[] v, int trials) throws InterruptedException {
 		if(trials < 2) { throw new IllegalArgumentException(
 			"Must run at least two trials to compute sample standard deviation."); }
-		Perf perf;
-		double m = 0;
-		double s = 0;
+		// For a TrialFunction, each evaluation is split into its trials.
+		int k = trialsPerEvaluation();
+		double[][] results = new double[trials][k];
+		boolean[][] censored = new boolean[trials][k];
+		int[] resultCount = new int[trials];
+		boolean[] timedOut = new boolean[trials];
+		Round round = new Round(++rounds, trials, k);
 		for(int i = 0; i < trials; i++) {
-			problemQueue.add(new Subproblem(problem, v, i));
+			for(int t = 0; t < k; t++) {
+				dispatch(round, new Subproblem(problem, v, i, problem instanceof TrialFunction ? t : -1));
+			}
 		}
-		// see https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Online_algorithm
-		for(int i = 1; i <= trials; i++) {
-			perf = resultQueue.take();
-			double x = perf.performance;
-			double delta = x - m;
-			m = m + delta / i;
-			s = s + delta * (x - m);
+		RunningStats total = new RunningStats();
+		for(int i = 0; i < trials * k; i++) {
+			Perf perf = nextResult(round);
+			results[perf.index][k == 1 ? 0 : perf.trial] = perf.performance;
+			censored[perf.index][k == 1 ? 0 : perf.trial] = perf.censored;
+			timedOut[perf.index] |= perf.timedOut;
+			if(++resultCount[perf.index] == k) {
+				total.add(combine(results[perf.index], censored[perf.index], timedOut[perf.index]));
+			}
 		}
-		return new EvaluationResult(m, s / (trials - 1));
+		problemQueue.clear();
+		return new EvaluationResult(total.mean(), total.variance());
 	}
 
 	/**
@@ -164,6 +811,71 @@ public final class CESolver {
 		this.maxIterations = maxIterations;
 	}
 
+	/**
+	 * @return the maximal number of samples evaluated.
+	 */
+	public long getMaxEvaluations() {
+		return maxEvaluations;
+	}
+
+	/**
+	 * Once the budget is used, the current iteration is abandoned. The budget
+	 * counts samples, as SolverResult.evaluations does: a sample of a
+	 * TrialFunction counts once for all its trials, and copies made for
+	 * speculation are free.
+	 * @param maxEvaluations the maximal number of samples evaluated.
+	 */
+	public void setMaxEvaluations(long maxEvaluations) {
+		this.maxEvaluations = maxEvaluations;
+	}
+
+	/**
+	 * @return the time limit in milliseconds, 0 for no limit.
+	 */
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * After the time limit, no new samples are evaluated, but samples
+	 * already being evaluated are allowed to finish.
+	 * @param timeLimit the time limit in milliseconds, 0 for no limit.
+	 */
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return the number of iterations without improvement before stopping.
+	 */
+	public int getPlateauWindow() {
+		return plateauWindow;
+	}
+
+	/**
+	 * The solver stops when neither the best performance nor the mean
+	 * elite performance improves by more than the plateau tolerance
+	 * over this many iterations.
+	 * @param plateauWindow the number of iterations, 0 to disable plateau detection.
+	 */
+	public void setPlateauWindow(int plateauWindow) {
+		this.plateauWindow = plateauWindow;
+	}
+
+	/**
+	 * @return the smallest change in performance counted as an improvement.
+	 */
+	public double getPlateauTolerance() {
+		return plateauTolerance;
+	}
+
+	/**
+	 * @param plateauTolerance the smallest change in performance counted as an improvement.
+	 */
+	public void setPlateauTolerance(double plateauTolerance) {
+		this.plateauTolerance = plateauTolerance;
+	}
+
 	/**
 	 * Note that all the setters should be called before using the solver.
 	 * @param threads The number of threads to use when solving problems.
@@ -222,6 +934,22 @@ public final class CESolver {
 		this.initialNoise = initialNoise;
 	}
 
+	/**
+	 * @return the noise schedule, or null for the linear schedule given by
+	 * the initial noise and the noise step.
+	 */
+	public NoiseSchedule getNoiseSchedule() {
+		return noiseSchedule;
+	}
+
+	/**
+	 * @param noiseSchedule decides the noise added each iteration, or null for
+	 * the linear schedule given by the initial noise and the noise step.
+	 */
+	public void setNoiseSchedule(NoiseSchedule noiseSchedule) {
+		this.noiseSchedule = noiseSchedule;
+	}
+
 	/**
 	 * @return the number of elite samples per iteration.
 	 */
@@ -264,6 +992,185 @@ public final class CESolver {
 		this.problem = problem;
 	}
 
+	/**
+	 * @return the problem to solve with solveBinary().
+	 */
+	public BinaryFunction getBinaryProblem() {
+		return binaryProblem;
+	}
+
+	/**
+	 * @param binaryProblem the problem to solve with solveBinary().
+	 */
+	public void setBinaryProblem(BinaryFunction binaryProblem) {
+		this.binaryProblem = binaryProblem;
+	}
+
+	/**
+	 * @return the weight of the elites when fitting a BernoulliDistribution.
+	 */
+	public double getSmoothing() {
+		return smoothing;
+	}
+
+	/**
+	 * @param smoothing the weight of the elites when fitting a BernoulliDistribution,
+	 * between 0 and 1, 0.7 by default. See BernoulliDistribution.fitTo().
+	 */
+	public void setSmoothing(double smoothing) {
+		this.smoothing = smoothing;
+	}
+
+	/**
+	 * @return the listener told about every iteration, or null if there is none.
+	 */
+	public IterationListener getIterationListener() {
+		return iterationListener;
+	}
+
+	/**
+	 * @param listener told about every completed iteration of solve() and
+	 * solveBinary(), or null to tell no one.
+	 */
+	public void setIterationListener(IterationListener listener) {
+		this.iterationListener = listener;
+	}
+
+	/**
+	 * @return the curriculum, or null if the problem is not changed between iterations.
+	 */
+	public Curriculum getCurriculum() {
+		return curriculum;
+	}
+
+	/**
+	 * The curriculum is asked for the problem of every iteration after the first,
+	 * starting from the problem given to setProblem(). The problem of the
+	 * last iteration remains set after solve() returns.
+	 * @param curriculum changes the problem between iterations, or null to keep it.
+	 */
+	public void setCurriculum(Curriculum curriculum) {
+		this.curriculum = curriculum;
+	}
+
+	/**
+	 * @return the surrogate used to screen candidates, or null if all samples drawn are evaluated.
+	 */
+	public Surrogate getSurrogate() {
+		return surrogate;
+	}
+
+	/**
+	 * With a surrogate, every iteration after the first draws oversampling
+	 * candidates per sample, and evaluates those the surrogate predicts to be
+	 * best, except for the exploration fraction, which is chosen at random.
+	 * The surrogate is fitted to the evaluated samples after every iteration,
+	 * and the rank correlation of its predictions is reported in the
+	 * IterationSummary. This pays off when evaluations are expensive. It cannot
+	 * be used in seed-compressed mode.
+	 * @param surrogate the surrogate, or null to evaluate all samples drawn.
+	 */
+	public void setSurrogate(Surrogate surrogate) {
+		this.surrogate = surrogate;
+	}
+
+	/**
+	 * @return the number of candidates drawn per sample when screening.
+	 */
+	public int getOversampling() {
+		return oversampling;
+	}
+
+	/**
+	 * @param oversampling the number of candidates drawn per sample when screening, 4 by default.
+	 */
+	public void setOversampling(int oversampling) {
+		this.oversampling = oversampling;
+	}
+
+	/**
+	 * @return the fraction of the samples chosen at random rather than by the surrogate.
+	 */
+	public double getExplorationFraction() {
+		return explorationFraction;
+	}
+
+	/**
+	 * Samples chosen at random keep the surrogate from only learning about
+	 * the region it already favours.
+	 * @param explorationFraction the fraction of the samples chosen at random
+	 * rather than by the surrogate, 0.2 by default.
+	 */
+	public void setExplorationFraction(double explorationFraction) {
+		this.explorationFraction = explorationFraction;
+	}
+
+	/**
+	 * @return the time in milliseconds after which an evaluation is given
+	 * the timeout penalty, 0 for no limit.
+	 */
+	public long getEvaluationTimeout() {
+		return evaluationTimeout;
+	}
+
+	/**
+	 * An evaluation, or a trial of a TrialFunction, that takes longer than
+	 * this gives its sample the timeout penalty as performance, without
+	 * combining it with the other trials of the sample. Its worker is
+	 * replaced by a new thread, so that the solver keeps its number of threads
+	 * even if the evaluation never returns.
+	 * @param evaluationTimeout the time in milliseconds, 0 for no limit.
+	 */
+	public void setEvaluationTimeout(long evaluationTimeout) {
+		this.evaluationTimeout = evaluationTimeout;
+	}
+
+	/**
+	 * @return the performance of an evaluation that timed out.
+	 */
+	public double getTimeoutPenalty() {
+		return timeoutPenalty;
+	}
+
+	/**
+	 * @param timeoutPenalty the performance of an evaluation that timed out,
+	 * negative infinity by default.
+	 */
+	public void setTimeoutPenalty(double timeoutPenalty) {
+		this.timeoutPenalty = timeoutPenalty;
+	}
+
+	/**
+	 * @return the fraction of the evaluations of an iteration after which
+	 * the slowest outstanding ones are dispatched again, 0 to never.
+	 */
+	public double getSpeculationThreshold() {
+		return speculationThreshold;
+	}
+
+	/**
+	 * Once this fraction of the evaluations of an iteration have returned,
+	 * the outstanding evaluations that started first are dispatched again to
+	 * idle workers, and the first result of each is used. This keeps a few
+	 * slow evaluations from holding up the iteration. Copies are not counted
+	 * against the maximal number of evaluations. The trials of a TrialFunction
+	 * are only copied if TrialFunction.repeatableTrials() is true, since the
+	 * first result of a copy of a stochastic trial is biased towards quick
+	 * trials. The same holds for a stochastic Function that is not a TrialFunction,
+	 * so do not use speculation for one.
+	 * @param speculationThreshold the fraction, for example 0.9, or 0 to never dispatch copies.
+	 */
+	public void setSpeculationThreshold(double speculationThreshold) {
+		this.speculationThreshold = speculationThreshold;
+	}
+
+	/**
+	 * @return the number of workers replaced after timing out or dying.
+	 */
+	public int getReplacedWorkers() {
+		return replacedWorkers;
+	}
+
 	/**
 	 * @return the verbosity
 	 */
@@ -278,6 +1185,26 @@ public final class CESolver {
 		this.verbosity = verbosity;
 	}
 
+	/**
+	 * @return true if samples are kept as seeds rather than vectors.
+	 */
+	public boolean isSeedCompressed() {
+		return seedCompressed;
+	}
+
+	/**
+	 * In seed-compressed mode, each sample is kept only as a seed of the
+	 * distribution, which must then be a SeededDistribution, and the workers
+	 * regenerate the vector from the seed before evaluating it. Only the elites
+	 * of each iteration are regenerated on the solving thread, to fit the
+	 * distribution, which saves memory in very high dimensions. A TrialFunction
+	 * regenerates the vector for each trial.
+	 * @param seedCompressed true to keep samples as seeds rather than vectors.
+	 */
+	public void setSeedCompressed(boolean seedCompressed) {
+		this.seedCompressed = seedCompressed;
+	}
+
 	/**
 	 * Useful with threads = 1 for deterministic execution.
 	 * @param n the seed for the RNG.
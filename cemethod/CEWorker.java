@@ -15,6 +15,22 @@ class CEWorker extends Thread {
 	 * Queue for returning results.
 	 */
 	private final LinkedBlockingQueue<Perf> resultQueue;
+	/**
+	 * The problem being evaluated, or null while waiting for one.
+	 */
+	private volatile Subproblem current;
+	/**
+	 * Set when CESolver has replaced this worker. It then stops after the current problem.
+	 */
+	private volatile boolean retired;
+	/**
+	 * The ContextFunction the context belongs to, or null.
+	 */
+	private Function contextOwner;
+	/**
+	 * The context of contextOwner on this thread.
+	 */
+	private Object context;
 
 	/**
 	 * @param input input queue.
@@ -22,6 +38,8 @@ class CEWorker extends Thread {
 	 */
 	CEWorker(LinkedBlockingQueue<Subproblem> input, LinkedBlockingQueue<Perf> output) {
 		super();
+		// A worker stuck in an evaluation must not keep the program alive.
+		setDaemon(true);
 		problemQueue = input;
 		resultQueue = output;
 	}
@@ -31,11 +49,26 @@ class CEWorker extends Thread {
 	 */
 	@Override
 	public void run() {
-		while(!isInterrupted()) {
+		while(!retired && !isInterrupted()) {
 			doone();
 		}
 	}
 
+	/**
+	 * @return The problem being evaluated, or null while waiting for one.
+	 */
+	Subproblem current() {
+		return current;
+	}
+
+	/**
+	 * Makes the worker stop once the current evaluation returns, if ever.
+	 */
+	void retire() {
+		retired = true;
+		interrupt();
+	}
+
 	/**
 	 * Processes a single problem instance.
 	 */
@@ -48,13 +81,65 @@ class CEWorker extends Thread {
 			return;
 		}
 		Perf perf = new Perf();
+		perf.round = prob.round;
 		perf.index = prob.index;
-		perf.performance = prob.problem.fitness(prob.parameters);
+		perf.trial = prob.trial;
+		prob.started = System.nanoTime();
+		current = prob;
 		try {
-			resultQueue.put(perf);
-		} catch(InterruptedException e) {
-			interrupt();
-			throw new RuntimeException("Thread interrupted while working.");
+			if(prob.bits != null) {
+				perf.performance = prob.binaryProblem.fitness(prob.bits);
+			} else {
+				double[] parameters = prob.parameters();
+				if(prob.problem instanceof ContextFunction &&
+					(prob.trial < 0 || prob.problem instanceof ContextTrialFunction)) {
+					evaluate((ContextFunction<?>)prob.problem, parameters, prob.sample(), prob.trial, perf);
+				} else if(prob.trial < 0) {
+					perf.performance = prob.problem.fitness(parameters);
+				} else {
+					TrialResult t = ((TrialFunction)prob.problem).censoredTrial(parameters, prob.sample(), prob.trial);
+					perf.performance = t.value;
+					perf.censored = t.censored;
+				}
+			}
+		} catch(Throwable e) {
+			// The context may have been left half updated.
+			contextOwner = null;
+			context = null;
+			if(retired) {
+				// Likely caused by the interrupt of retire(). The solver has already
+				// given up on this evaluation, so there is nothing to report.
+				return;
+			}
+			perf.error = e;
+		} finally {
+			current = null;
+		}
+		// Unlike put(), add() also delivers the result when retire() has interrupted the thread.
+		resultQueue.add(perf);
+	}
+
+	/**
+	 * Evaluates with the context of f on this thread, created on first use.
+	 * @param f the function.
+	 * @param v the vector to evaluate.
+	 * @param sample the number of the evaluation the trial belongs to.
+	 * @param trial the trial to run, or -1 to evaluate the fitness.
+	 * @param perf set to the result.
+	 */
+	private <C> void evaluate(ContextFunction<C> f, double[] v, long sample, int trial, Perf perf) {
+		if(f != contextOwner) {
+			context = f.newContext();
+			contextOwner = f;
+		}
+		@SuppressWarnings("unchecked")
+		C c = (C)context;
+		if(trial < 0) {
+			perf.performance = f.fitness(v, c);
+			return;
 		}
+		TrialResult t = ((ContextTrialFunction<C>)f).censoredTrial(v, sample, trial, c);
+		perf.performance = t.value;
+		perf.censored = t.censored;
 	}
 }
@@ -0,0 +1,35 @@
+package cemethod;
+
+/**
+ * A function that keeps per-thread state, such as scratch memory, in a
+ * context object, so that evaluations need not allocate it. CESolver
+ * creates a context once per worker thread and problem, and passes it to
+ * every evaluation of the problem on that thread.
+ * Note: <b>All functions must be thread-safe</b>, but a context is only
+ * used by one thread at a time.
+ * @param <C> the type of the context.
+ */
+public interface ContextFunction<C> extends Function {
+	/**
+	 * @return A new context, for use by a single thread.
+	 */
+	C newContext();
+
+	/**
+	 * Like fitness(v), using the memory of context.
+	 * This function may not mutate v.
+	 * @param v vector to evaluate, of length dimension().
+	 * @param context a context of this function, not used by other threads meanwhile.
+	 * @return The value of the function at v.
+	 */
+	double fitness(double[] v, C context);
+
+	/**
+	 * The default evaluates v with a new context.
+	 * @see Function#fitness(double[])
+	 */
+	@Override
+	default double fitness(double[] v) {
+		return fitness(v, newContext());
+	}
+}
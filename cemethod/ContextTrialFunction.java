@@ -0,0 +1,65 @@
+package cemethod;
+
+/**
+ * A TrialFunction whose trials use a per-thread context, see ContextFunction.
+ * Note: <b>All functions must be thread-safe.</b>
+ * @param <C> the type of the context.
+ */
+public interface ContextTrialFunction<C> extends ContextFunction<C>, TrialFunction {
+	/**
+	 * Like trial(v, trial), using the memory of context.
+	 * This function may not mutate v.
+	 * @param v vector to evaluate, of length dimension().
+	 * @param trial the index of the trial, between 0 and trials() - 1.
+	 * @param context a context of this function, not used by other threads meanwhile.
+	 * @return The result of a single trial at v.
+	 */
+	double trial(double[] v, int trial, C context);
+
+	/**
+	 * Like censoredTrial(v, sample, trial), using the memory of context.
+	 * The default runs trial(v, trial, context), whose trials are never stopped.
+	 * @param v vector to evaluate, of length dimension().
+	 * @param sample the number of the evaluation, or negative if there is none.
+	 * @param trial the index of the trial, between 0 and trials() - 1.
+	 * @param context a context of this function, not used by other threads meanwhile.
+	 * @return The result of a single trial at v.
+	 */
+	default TrialResult censoredTrial(double[] v, long sample, int trial, C context) {
+		return new TrialResult(trial(v, trial, context), false);
+	}
+
+	/**
+	 * The default runs the trial with a new context.
+	 * @see TrialFunction#censoredTrial(double[], long, int)
+	 */
+	@Override
+	default TrialResult censoredTrial(double[] v, long sample, int trial) {
+		return censoredTrial(v, sample, trial, newContext());
+	}
+
+	/**
+	 * The default runs the trial with a new context.
+	 * @see TrialFunction#trial(double[], int)
+	 */
+	@Override
+	default double trial(double[] v, int trial) {
+		return trial(v, trial, newContext());
+	}
+
+	/**
+	 * The default runs all trials with context and combines them.
+	 * @see ContextFunction#fitness(double[], Object)
+	 */
+	@Override
+	default double fitness(double[] v, C context) {
+		double[] results = new double[trials()];
+		boolean[] censored = new boolean[results.length];
+		for(int i = 0; i < results.length; i++) {
+			TrialResult t = censoredTrial(v, -1, i, context);
+			results[i] = t.value;
+			censored[i] = t.censored;
+		}
+		return combine(results, censored);
+	}
+}
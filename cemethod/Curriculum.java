@@ -0,0 +1,18 @@
+package cemethod;
+
+/**
+ * Changes the problem CESolver solves between iterations, for example to
+ * make it harder as the solutions improve while keeping the time per
+ * iteration roughly constant.
+ */
+public interface Curriculum {
+	/**
+	 * Called by CESolver after every completed iteration.
+	 * The samples of the next iteration are all evaluated on the returned problem.
+	 * @param problem the problem of the iteration.
+	 * @param last what happened in the iteration.
+	 * @return The problem for the next iteration, of the same dimension,
+	 * or problem to keep it.
+	 */
+	Function next(Function problem, IterationSummary last);
+}
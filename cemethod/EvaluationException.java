@@ -0,0 +1,13 @@
+package cemethod;
+
+/**
+ * Thrown by CESolver when the fitness function throws while evaluating
+ * a sample. The cause is what the function threw.
+ */
+public class EvaluationException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	EvaluationException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -2,7 +2,6 @@ package cemethod;
 
 import org.apache.commons.math3.distribution.MultivariateNormalDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
-import org.apache.commons.math3.stat.correlation.Covariance;
 
 /**
  * 
@@ -45,13 +44,10 @@ public class GeneralNormalDistribution implements Distribution {
 	public void fitTo(double[][] samples, double noise) {
 		int nsamples = samples.length;
 		double[] means = new double[dim];
-		double[][] covarianceMatrix;
-		for(double[] sample : samples) {
-			for(int i = 0; i < dim; i++) {
-				means[i] += sample[i] / nsamples;
-			}
-		}
-		covarianceMatrix = new Covariance(samples, false).getCovarianceMatrix().getData();
+		double[][] covarianceMatrix = new double[dim][dim];
+		Kernels.mean(samples, dim, means);
+		double[] centered = Kernels.center(samples, dim, means);
+		Kernels.covariance(centered, nsamples, dim, covarianceMatrix);
 		for(int i = 0; i < dim; i++) {
 			covarianceMatrix[i][i] += noise;
 		}
@@ -0,0 +1,14 @@
+package cemethod;
+
+/**
+ * Observes the progress of CESolver, for example to log it or to record
+ * when a target was reached, without changing what the solver does.
+ */
+public interface IterationListener {
+	/**
+	 * Called by CESolver after every completed iteration, before the
+	 * curriculum, if any, is asked for the next problem.
+	 * @param summary what happened in the iteration.
+	 */
+	void iterationDone(IterationSummary summary);
+}
@@ -0,0 +1,48 @@
+package cemethod;
+
+/**
+ * What happened in one iteration of CESolver.solve(), given to a Curriculum,
+ * a NoiseSchedule and an IterationListener.
+ */
+public class IterationSummary {
+	/**
+	 * The number of the iteration, counting from 1.
+	 */
+	public final int iteration;
+	/**
+	 * The best performance of the iteration.
+	 */
+	public final double bestPerformance;
+	/**
+	 * The mean performance of the elites of the iteration.
+	 */
+	public final double eliteMean;
+	/**
+	 * The number of samples evaluated in the iteration, counted as in SolverResult.evaluations.
+	 */
+	public final long evaluations;
+	/**
+	 * Wall-clock time spent evaluating the samples of the iteration, in nanoseconds.
+	 */
+	public final long elapsedNanos;
+	/**
+	 * Wall-clock time from the start of solve() to the end of the iteration, in nanoseconds.
+	 */
+	public final long totalNanos;
+	/**
+	 * The Spearman rank correlation between the performance of the samples
+	 * the surrogate chose and its predictions, or NaN without a surrogate.
+	 */
+	public final double surrogateCorrelation;
+
+	IterationSummary(int iteration, double bestPerformance, double eliteMean,
+		long evaluations, long elapsedNanos, long totalNanos, double surrogateCorrelation) {
+		this.iteration = iteration;
+		this.bestPerformance = bestPerformance;
+		this.eliteMean = eliteMean;
+		this.evaluations = evaluations;
+		this.elapsedNanos = elapsedNanos;
+		this.totalNanos = totalNanos;
+		this.surrogateCorrelation = surrogateCorrelation;
+	}
+}
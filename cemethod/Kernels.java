@@ -0,0 +1,136 @@
+package cemethod;
+
+import java.util.Arrays;
+
+/**
+ * The inner loops of fitting and sampling the distributions, as plain scalar
+ * loops. Divisions and square roots are hoisted out of them, and sums are
+ * spread over four accumulators, so that four additions can be in flight
+ * rather than one chain. The JIT compiler may vectorize the element-wise
+ * loops, but not the sums, whose order of floating point additions it
+ * must keep, and there is no jdk.incubator.vector path, which would need
+ * --add-modules on every run. The elites are read as separate rows, which are
+ * each contiguous: packing them into one array first costs an extra pass
+ * over memory that the mean and variance do not win back, and they are no
+ * faster on packed rows, see KernelBenchmarks.fitPacked. The covariance,
+ * which reads every centered row many times, works on a packed copy.
+ */
+final class Kernels {
+	private Kernels() {
+	}
+
+	/**
+	 * @param rows the rows, each at least dim long.
+	 * @param dim the number of components.
+	 * @param means set to the mean of the rows.
+	 */
+	static void mean(double[][] rows, int dim, double[] means) {
+		System.arraycopy(rows[0], 0, means, 0, dim);
+		for(int k = 1; k < rows.length; k++) {
+			double[] row = rows[k];
+			for(int i = 0; i < dim; i++) {
+				means[i] += row[i];
+			}
+		}
+		double scale = 1.0 / rows.length;
+		for(int i = 0; i < dim; i++) {
+			means[i] *= scale;
+		}
+	}
+
+	/**
+	 * @param rows the rows, each at least dim long.
+	 * @param dim the number of components.
+	 * @param means the mean of the rows.
+	 * @return The sum over all rows and components of the squared
+	 * difference from the mean.
+	 */
+	static double sumOfSquares(double[][] rows, int dim, double[] means) {
+		double s0 = 0;
+		double s1 = 0;
+		double s2 = 0;
+		double s3 = 0;
+		for(double[] row : rows) {
+			int i = 0;
+			for(; i + 3 < dim; i += 4) {
+				double d0 = row[i] - means[i];
+				double d1 = row[i + 1] - means[i + 1];
+				double d2 = row[i + 2] - means[i + 2];
+				double d3 = row[i + 3] - means[i + 3];
+				s0 += d0 * d0;
+				s1 += d1 * d1;
+				s2 += d2 * d2;
+				s3 += d3 * d3;
+			}
+			for(; i < dim; i++) {
+				double d = row[i] - means[i];
+				s0 += d * d;
+			}
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * Copies rows into a matrix, subtracting the mean.
+	 * @param rows the rows, each at least dim long.
+	 * @param dim the number of components.
+	 * @param means the mean of the rows.
+	 * @return The centered rows, one after the other.
+	 */
+	static double[] center(double[][] rows, int dim, double[] means) {
+		double[] matrix = new double[rows.length * dim];
+		for(int k = 0; k < rows.length; k++) {
+			double[] row = rows[k];
+			int offset = k * dim;
+			for(int i = 0; i < dim; i++) {
+				matrix[offset + i] = row[i] - means[i];
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Computes the covariance matrix of centered rows, dividing by n.
+	 * Each row adds its outer product to the upper triangle, one
+	 * contiguous row segment at a time, then the triangle is mirrored.
+	 * @param centered n rows of length dim, with mean 0.
+	 * @param n the number of rows.
+	 * @param dim the length of a row.
+	 * @param covariance dim rows of length dim, overwritten.
+	 */
+	static void covariance(double[] centered, int n, int dim, double[][] covariance) {
+		for(int i = 0; i < dim; i++) {
+			Arrays.fill(covariance[i], i, dim, 0);
+		}
+		for(int k = 0; k < n; k++) {
+			int offset = k * dim;
+			for(int i = 0; i < dim; i++) {
+				double ci = centered[offset + i];
+				double[] row = covariance[i];
+				for(int j = i; j < dim; j++) {
+					row[j] += ci * centered[offset + j];
+				}
+			}
+		}
+		double scale = 1.0 / n;
+		for(int i = 0; i < dim; i++) {
+			double[] row = covariance[i];
+			for(int j = i; j < dim; j++) {
+				row[j] *= scale;
+				covariance[j][i] = row[j];
+			}
+		}
+	}
+
+	/**
+	 * Transforms standard normal values into samples, in place.
+	 * @param z standard normal values, replaced by means + scale * z.
+	 * @param means the means.
+	 * @param scale the standard deviation.
+	 */
+	static void affine(double[] z, double[] means, double scale) {
+		for(int i = 0; i < z.length; i++) {
+			z[i] = means[i] + scale * z[i];
+		}
+	}
+}
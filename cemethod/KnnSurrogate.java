@@ -0,0 +1,80 @@
+package cemethod;
+
+/**
+ * Predicts the mean performance of the k nearest of the most recently
+ * evaluated points, by Euclidean distance. Makes no assumption about the
+ * shape of the function, but needs the samples to be dense around the
+ * distribution, so it suits low dimensions.
+ */
+public class KnnSurrogate implements Surrogate {
+	private final int k;
+	/**
+	 * The most recent points, as a circular buffer.
+	 */
+	private final double[][] points;
+	private final double[] performances;
+	/**
+	 * The number of points added, of which the last points.length are kept.
+	 */
+	private long added;
+	/**
+	 * Scratch memory for predict(), which is only called by one thread.
+	 */
+	private final double[] nearest;
+
+	/**
+	 * @param k the number of neighbours to average.
+	 * @param history the number of recent points to keep.
+	 */
+	public KnnSurrogate(int k, int history) {
+		if(k > history) { throw new IllegalArgumentException("More neighbours than points kept."); }
+		this.k = k;
+		points = new double[history][];
+		performances = new double[history];
+		nearest = new double[2 * k];
+	}
+
+	@Override
+	public void clear() {
+		added = 0;
+	}
+
+	@Override
+	public void update(double[][] points, double[] performances) {
+		for(int i = 0; i < points.length; i++) {
+			int j = (int)(added++ % this.points.length);
+			this.points[j] = points[i];
+			this.performances[j] = performances[i];
+		}
+	}
+
+	@Override
+	public double predict(double[] v) {
+		int n = (int)Math.min(added, points.length);
+		// The k nearest so far as (distance, performance) pairs, sorted by distance.
+		int found = 0;
+		for(int j = 0; j < n; j++) {
+			double dist = 0;
+			double[] p = points[j];
+			for(int i = 0; i < v.length; i++) {
+				dist += (v[i] - p[i]) * (v[i] - p[i]);
+			}
+			if(found == k && dist >= nearest[2 * (k - 1)]) {
+				continue;
+			}
+			int pos = found < k ? found++ : k - 1;
+			while(pos > 0 && nearest[2 * (pos - 1)] > dist) {
+				nearest[2 * pos] = nearest[2 * (pos - 1)];
+				nearest[2 * pos + 1] = nearest[2 * (pos - 1) + 1];
+				pos--;
+			}
+			nearest[2 * pos] = dist;
+			nearest[2 * pos + 1] = performances[j];
+		}
+		double sum = 0;
+		for(int i = 0; i < found; i++) {
+			sum += nearest[2 * i + 1];
+		}
+		return sum / found;
+	}
+}
@@ -0,0 +1,29 @@
+package cemethod;
+
+/**
+ * Noise that changes by a fixed step every iteration, and stays at 0
+ * once it gets there: initialNoise + noiseStep * (iteration - 1).
+ */
+public class LinearNoise implements NoiseSchedule {
+	private final double initialNoise;
+	private final double noiseStep;
+
+	/**
+	 * @param initialNoise the noise of the first iteration.
+	 * @param noiseStep the change of the noise per iteration, usually negative.
+	 */
+	public LinearNoise(double initialNoise, double noiseStep) {
+		this.initialNoise = initialNoise;
+		this.noiseStep = noiseStep;
+	}
+
+	@Override
+	public void start() {
+	}
+
+	@Override
+	public double noise(IterationSummary last, Distribution d) {
+		double noise = initialNoise + noiseStep * (last.iteration - 1);
+		return noise > 0 ? noise : 0;
+	}
+}
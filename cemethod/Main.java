@@ -76,8 +76,9 @@ public class Main {
 		solver.setInitialNoise(initialNoise);
 		solver.setNoiseStep(noiseStep);
 		try {
-			double[] v = solver.solve(new NormalDistribution(r, initialGuess, initialVariance));
-			System.out.println("perf: " + ack.fitness(v));
+			SolverResult result = solver.solve(new NormalDistribution(r, initialGuess, initialVariance));
+			System.out.println(result);
+			System.out.println("perf: " + ack.fitness(result.best));
 		} catch(InterruptedException e) {
 			System.exit(1);
 		}
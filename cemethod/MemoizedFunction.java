@@ -0,0 +1,247 @@
+package cemethod;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps a deterministic function, remembering the values of the most recently
+ * used vectors, so that evaluating the same vector again is free. This helps
+ * with elites carried over between iterations, discretized parameters, and
+ * repeated evaluateParameters() calls. Vectors are equal if their components
+ * have the same bits, so 0.0 and -0.0 are different vectors.
+ * <p>
+ * The memory is split into segments by the hash of the vector, each a
+ * least recently used cache behind its own lock, so that threads rarely wait
+ * for each other. The function is evaluated outside the lock, so two threads
+ * may evaluate the same new vector at the same time.
+ * <p>
+ * Only wrap functions whose value depends on the vector alone. Tetris.fitness()
+ * plays different games every call, so it must not be wrapped. A TrialFunction
+ * is memoized as a whole, so its trials are no longer evaluated in parallel.
+ * <p>
+ * In a file, the memory is preceded by the magic number 0x43454d4f ("CEMO"),
+ * a version byte, the dimension and the number of entries as ints.
+ * Each entry is then the components of the vector and its value, as doubles.
+ */
+public class MemoizedFunction implements Function {
+	/**
+	 * Identifies memory files.
+	 */
+	private static final int MAGIC = 0x43454d4f;
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The bits of a vector.
+	 */
+	private static final class Key {
+		private final long[] bits;
+		private final int hash;
+
+		Key(double[] v) {
+			bits = new long[v.length];
+			for(int i = 0; i < v.length; i++) {
+				bits[i] = Double.doubleToRawLongBits(v[i]);
+			}
+			hash = Arrays.hashCode(bits);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(bits, ((Key)o).bits);
+		}
+	}
+
+	/**
+	 * A least recently used cache.
+	 */
+	private static final class Segment extends LinkedHashMap<Key, Double> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Double> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private final Function f;
+	private final Segment[] segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param f the deterministic function to evaluate.
+	 * @param capacity the number of vectors to remember.
+	 */
+	public MemoizedFunction(Function f, int capacity) {
+		this.f = f;
+		// Enough segments for many threads, but each large enough for its LRU order to matter.
+		int n = 1;
+		while(n < 64 && capacity / (2 * n) >= 64) {
+			n *= 2;
+		}
+		segments = new Segment[n];
+		for(int i = 0; i < n; i++) {
+			segments[i] = new Segment((capacity + n - 1) / n);
+		}
+	}
+
+	@Override
+	public int dimension() {
+		return f.dimension();
+	}
+
+	@Override
+	public double fitness(double[] v) {
+		Key key = new Key(v);
+		Segment s = segment(key);
+		Double value;
+		synchronized(s) {
+			value = s.get(key);
+		}
+		if(value != null) {
+			hits.incrementAndGet();
+			return value;
+		}
+		misses.incrementAndGet();
+		double fitness = f.fitness(v);
+		synchronized(s) {
+			s.put(key, fitness);
+		}
+		return fitness;
+	}
+
+	private Segment segment(Key key) {
+		// The high bits of the hash, since the low bits pick the bucket within the segment.
+		int h = key.hash * 0x9E3779B9;
+		return segments[(h >>> 16) & (segments.length - 1)];
+	}
+
+	/**
+	 * @return The number of evaluations answered from memory.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return The number of evaluations passed on to the wrapped function.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return The fraction of evaluations answered from memory, 0 before the first.
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total > 0 ? (double)h / total : 0;
+	}
+
+	/**
+	 * @return The number of vectors remembered.
+	 */
+	public int size() {
+		int size = 0;
+		for(Segment s : segments) {
+			synchronized(s) {
+				size += s.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Forgets all vectors, but not the hit and miss counts.
+	 */
+	public void clear() {
+		for(Segment s : segments) {
+			synchronized(s) {
+				s.clear();
+			}
+		}
+	}
+
+	/**
+	 * Writes the remembered vectors and their values, e.g. to reuse them in a later run.
+	 * @param out where to write the memory, including the file header.
+	 * @throws IOException if out throws.
+	 */
+	public void write(OutputStream out) throws IOException {
+		List<Key> keys = new ArrayList<Key>();
+		List<Double> values = new ArrayList<Double>();
+		for(Segment s : segments) {
+			synchronized(s) {
+				for(Map.Entry<Key, Double> e : s.entrySet()) {
+					keys.add(e.getKey());
+					values.add(e.getValue());
+				}
+			}
+		}
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(MAGIC);
+		dos.writeByte(VERSION);
+		dos.writeInt(dimension());
+		dos.writeInt(keys.size());
+		for(int i = 0; i < keys.size(); i++) {
+			for(long b : keys.get(i).bits) {
+				dos.writeLong(b);
+			}
+			dos.writeDouble(values.get(i));
+		}
+		dos.flush();
+	}
+
+	/**
+	 * Adds vectors and values written by write(), which must have been
+	 * evaluated by the same function.
+	 * @param in a stream positioned at a memory written by write().
+	 * @throws IOException if in throws, or does not contain a memory of this dimension.
+	 */
+	public void read(InputStream in) throws IOException {
+		DataInputStream dis = new DataInputStream(in);
+		if(dis.readInt() != MAGIC) { throw new IOException("Not a fitness memory."); }
+		int version = dis.readUnsignedByte();
+		if(version != VERSION) { throw new IOException("Unknown fitness memory version " + version + "."); }
+		int dim = dis.readInt();
+		if(dim != dimension()) { throw new IOException("Fitness memory of dimension " + dim + "."); }
+		int size = dis.readInt();
+		if(size < 0) { throw new IOException("Corrupt fitness memory."); }
+		double[] v = new double[dim];
+		for(int i = 0; i < size; i++) {
+			for(int j = 0; j < dim; j++) {
+				v[j] = Double.longBitsToDouble(dis.readLong());
+			}
+			Key key = new Key(v);
+			double value = dis.readDouble();
+			Segment s = segment(key);
+			synchronized(s) {
+				s.put(key, value);
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package cemethod;
+
+/**
+ * Decides the noise CESolver adds to the variance of the distribution
+ * each time it is fitted to the elites. The noise keeps the distribution
+ * from collapsing before the optimum is found, see the paper in the
+ * README, but too much of it wastes iterations.
+ */
+public interface NoiseSchedule {
+	/**
+	 * Called at the start of CESolver.solve(), before the first iteration.
+	 */
+	void start();
+
+	/**
+	 * Called after every completed iteration, before the distribution is fitted.
+	 * @param last what happened in the iteration.
+	 * @param d the distribution the samples of the iteration were drawn from.
+	 * @return The noise to add, at least 0.
+	 */
+	double noise(IterationSummary last, Distribution d);
+}
@@ -2,6 +2,7 @@ package cemethod;
 
 import java.util.Arrays;
 
+import org.apache.commons.math3.random.MersenneTwister;
 import org.apache.commons.math3.random.RandomGenerator;
 
 /**
@@ -10,7 +11,7 @@ import org.apache.commons.math3.random.RandomGenerator;
  * independent, i.e. the covariance matrix is a multiple of the
  * identity matrix.
  */
-public class NormalDistribution implements Distribution {
+public class NormalDistribution implements SeededDistribution {
 	/**
 	 * The dimensionality of the distribution.
 	 */
@@ -27,6 +28,19 @@ public class NormalDistribution implements Distribution {
 	 * The RNG used to draw samples from this distribution.
 	 */
 	private final RandomGenerator r;
+	/**
+	 * The number of calls to fitTo().
+	 */
+	private int version;
+	/**
+	 * The RNG of each thread used to draw samples from seeds.
+	 */
+	private static final ThreadLocal<MersenneTwister> SEEDED = new ThreadLocal<MersenneTwister>() {
+		@Override
+		protected MersenneTwister initialValue() {
+			return new MersenneTwister();
+		}
+	};
 
 	/**
 	 * @param r the source of randomness when sampling.
@@ -43,22 +57,9 @@ public class NormalDistribution implements Distribution {
 	@Override
 	public void fitTo(double[][] samples, double noise) {
 		int nsamples = samples.length;
-		for(int i = 0; i < dim; i++) {
-			means[i] = 0;
-		}
-		for(double[] sample : samples) {
-			for(int i = 0; i < dim; i++) {
-				means[i] += sample[i] / nsamples;
-			}
-		}
-		double nvar = 0;
-		for(double[] sample : samples) {
-			for(int i = 0; i < dim; i++) {
-				double si = sample[i];
-				nvar += (si - means[i]) * (si - means[i]);
-			}
-		}
-		var = nvar / nsamples / dim + noise;
+		Kernels.mean(samples, dim, means);
+		var = Kernels.sumOfSquares(samples, dim, means) / nsamples / dim + noise;
+		version++;
 	}
 
 	@Override
@@ -75,8 +76,26 @@ public class NormalDistribution implements Distribution {
 	public double[] sample() {
 		double[] ret = new double[dim];
 		for(int i = 0; i < dim; i++) {
-			ret[i] = means[i] + r.nextGaussian() * Math.sqrt(var);
+			ret[i] = r.nextGaussian();
 		}
+		Kernels.affine(ret, means, Math.sqrt(var));
 		return ret;
 	}
+
+	@Override
+	public double[] sample(long seed) {
+		MersenneTwister g = SEEDED.get();
+		g.setSeed(seed);
+		double[] ret = new double[dim];
+		for(int i = 0; i < dim; i++) {
+			ret[i] = g.nextGaussian();
+		}
+		Kernels.affine(ret, means, Math.sqrt(var));
+		return ret;
+	}
+
+	@Override
+	public int version() {
+		return version;
+	}
 }
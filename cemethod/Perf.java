@@ -4,12 +4,33 @@ package cemethod;
  * The performance of a single parameter vector.
  */
 class Perf {
+	/**
+	 * The round of evaluations the parameter vector belongs to (in CESolver).
+	 */
+	long round;
 	/**
 	 * The index of the parameter vector.
 	 */
 	int index;
+	/**
+	 * The trial, for a TrialFunction.
+	 */
+	int trial;
 	/**
 	 * The performance of the parameter vector.
 	 */
 	double performance;
+	/**
+	 * True if the trial was stopped before it ended, see TrialResult.
+	 */
+	boolean censored;
+	/**
+	 * True if the evaluation took longer than the evaluation timeout, and was
+	 * given the timeout penalty (in CESolver). The whole sample then gets the penalty.
+	 */
+	boolean timedOut;
+	/**
+	 * What the evaluation threw, or null if it returned.
+	 */
+	Throwable error;
 }
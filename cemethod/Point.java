@@ -7,13 +7,25 @@ import java.util.Arrays;
  */
 class Point implements Comparable<Point> {
 	/**
-	 * The point.
+	 * The point, or null until regenerated from seed.
 	 */
 	double[] vec;
+	/**
+	 * The bits of the point, for CESolver.solveBinary().
+	 */
+	long[] bits;
+	/**
+	 * The seed of the point, if drawn from a SeededDistribution.
+	 */
+	long seed;
 	/**
 	 * A cached measure of performance. 
 	 */
 	double performance;
+	/**
+	 * The performance predicted by a Surrogate, or NaN if not predicted.
+	 */
+	double predicted = Double.NaN;
 
 	/**
 	 * @param vector
@@ -22,6 +34,20 @@ class Point implements Comparable<Point> {
 		vec = Arrays.copyOf(vector, vector.length);
 	}
 
+	/**
+	 * @param bits the bits of the point, see BinaryFunction.
+	 */
+	Point(long[] bits) {
+		this.bits = bits;
+	}
+
+	/**
+	 * @param seed the seed of the point, see SeededDistribution.
+	 */
+	Point(long seed) {
+		this.seed = seed;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Comparable#compareTo(java.lang.Object)
 	 */
@@ -35,6 +61,9 @@ class Point implements Comparable<Point> {
 	 */
 	@Override
 	public String toString() {
-		return Arrays.toString(vec);
+		if(bits != null) {
+			return Arrays.toString(bits);
+		}
+		return vec != null ? Arrays.toString(vec) : "seed " + seed;
 	}
 }
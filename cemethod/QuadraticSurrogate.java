@@ -0,0 +1,115 @@
+package cemethod;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+
+/**
+ * Ridge regression of the performance on a separable quadratic,
+ * c + sum_i a_i x_i + b_i x_i^2, over the most recently evaluated points.
+ * It has 2 * dimension + 1 coefficients, so it can be fitted from fewer
+ * points than a full quadratic, and the ridge penalty keeps the fit stable
+ * when there are fewer points than coefficients.
+ */
+public class QuadraticSurrogate implements Surrogate {
+	/**
+	 * The penalty on the squared coefficients, except c.
+	 */
+	private final double ridge;
+	/**
+	 * The most recent points, as a circular buffer.
+	 */
+	private final double[][] points;
+	private final double[] performances;
+	/**
+	 * The number of points added, of which the last points.length are kept.
+	 */
+	private long added;
+	/**
+	 * c, a_0, b_0, a_1, b_1, ...
+	 */
+	private double[] coefficients;
+
+	/**
+	 * @param ridge the penalty on the squared coefficients, e.g. 1e-3.
+	 * @param history the number of recent points to fit to.
+	 */
+	public QuadraticSurrogate(double ridge, int history) {
+		this.ridge = ridge;
+		points = new double[history][];
+		performances = new double[history];
+	}
+
+	@Override
+	public void clear() {
+		added = 0;
+		coefficients = null;
+	}
+
+	@Override
+	public void update(double[][] points, double[] performances) {
+		for(int i = 0; i < points.length; i++) {
+			int j = (int)(added++ % this.points.length);
+			this.points[j] = points[i];
+			this.performances[j] = performances[i];
+		}
+		int n = (int)Math.min(added, this.points.length);
+		int dim = this.points[0].length;
+		int m = 2 * dim + 1;
+		// The performances are centered, so that the unpenalized constant stays small.
+		double mean = 0;
+		for(int j = 0; j < n; j++) {
+			mean += this.performances[j] / n;
+		}
+		// Normal equations (F^T F + ridge I) w = F^T y, with F the features of the points.
+		double[][] a = new double[m][m];
+		double[] b = new double[m];
+		double[] f = new double[m];
+		for(int j = 0; j < n; j++) {
+			features(this.points[j], f);
+			double y = this.performances[j] - mean;
+			for(int r = 0; r < m; r++) {
+				b[r] += f[r] * y;
+				double fr = f[r];
+				double[] row = a[r];
+				for(int c = 0; c <= r; c++) {
+					row[c] += fr * f[c];
+				}
+			}
+		}
+		for(int r = 0; r < m; r++) {
+			for(int c = 0; c < r; c++) {
+				a[c][r] = a[r][c];
+			}
+			if(r > 0) {
+				a[r][r] += ridge;
+			}
+		}
+		RealVector w = new CholeskyDecomposition(new Array2DRowRealMatrix(a, false))
+			.getSolver().solve(new ArrayRealVector(b, false));
+		coefficients = w.toArray();
+		coefficients[0] += mean;
+	}
+
+	@Override
+	public double predict(double[] v) {
+		double y = coefficients[0];
+		for(int i = 0; i < v.length; i++) {
+			y += v[i] * (coefficients[2 * i + 1] + v[i] * coefficients[2 * i + 2]);
+		}
+		return y;
+	}
+
+	/**
+	 * @param v a point.
+	 * @param f set to 1, v_0, v_0^2, v_1, v_1^2, ...
+	 */
+	private static void features(double[] v, double[] f) {
+		f[0] = 1;
+		for(int i = 0; i < v.length; i++) {
+			f[2 * i + 1] = v[i];
+			f[2 * i + 2] = v[i] * v[i];
+		}
+	}
+}
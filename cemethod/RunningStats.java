@@ -0,0 +1,60 @@
+package cemethod;
+
+/**
+ * The mean and variance of a stream of values, updated one value at a time.
+ * See https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Online_algorithm
+ */
+class RunningStats {
+	/**
+	 * The number of values seen.
+	 */
+	private int n;
+	/**
+	 * The mean of the values seen.
+	 */
+	private double mean;
+	/**
+	 * The sum of squared differences from the mean.
+	 */
+	private double m2;
+
+	/**
+	 * Forgets all values seen.
+	 */
+	void clear() {
+		n = 0;
+		mean = 0;
+		m2 = 0;
+	}
+
+	/**
+	 * @param x the next value.
+	 */
+	void add(double x) {
+		n++;
+		double delta = x - mean;
+		mean += delta / n;
+		m2 += delta * (x - mean);
+	}
+
+	/**
+	 * @return The number of values seen.
+	 */
+	int count() {
+		return n;
+	}
+
+	/**
+	 * @return The mean of the values seen.
+	 */
+	double mean() {
+		return mean;
+	}
+
+	/**
+	 * @return The sample variance of the values seen. At least two values are needed.
+	 */
+	double variance() {
+		return m2 / (n - 1);
+	}
+}
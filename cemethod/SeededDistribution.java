@@ -0,0 +1,24 @@
+package cemethod;
+
+/**
+ * A distribution whose samples can be regenerated from a seed, so that a
+ * sample can be stored and passed around as the seed alone, see
+ * CESolver.setSeedCompressed(). A sample depends on the seed and on
+ * the parameters of the distribution, which change with every call to
+ * fitTo(), so a seed identifies a sample only together with the version
+ * of the distribution it was drawn from.
+ */
+public interface SeededDistribution extends Distribution {
+	/**
+	 * Must be thread-safe, and return the same sample for the same seed
+	 * until the next call to fitTo().
+	 * @param seed the seed of the sample.
+	 * @return the sample.
+	 */
+	double[] sample(long seed);
+
+	/**
+	 * @return the number of calls to fitTo() so far.
+	 */
+	int version();
+}
@@ -0,0 +1,92 @@
+package cemethod;
+
+/**
+ *
+ * The return type of a call to CESolver.solve().
+ */
+public class SolverResult {
+	/**
+	 * The reason a call to CESolver.solve() stopped.
+	 */
+	public enum StopReason {
+		/**
+		 * The maximal number of iterations was reached.
+		 */
+		MAX_ITERATIONS,
+		/**
+		 * The variance of the distribution fell below the minimal variance.
+		 */
+		MIN_VARIANCE,
+		/**
+		 * The maximal number of samples evaluated was reached.
+		 */
+		MAX_EVALUATIONS,
+		/**
+		 * The time limit was reached.
+		 */
+		TIME_LIMIT,
+		/**
+		 * Neither the best nor the mean elite performance improved
+		 * over the plateau window.
+		 */
+		PLATEAU
+	}
+
+	/**
+	 * The best vector of the last completed iteration,
+	 * or null if no sample was evaluated or for CESolver.solveBinary().
+	 */
+	public final double[] best;
+	/**
+	 * The best bits of the last completed iteration of CESolver.solveBinary(),
+	 * or null for CESolver.solve() or if no sample was evaluated.
+	 */
+	public final long[] bestBits;
+	/**
+	 * The performance of best.
+	 */
+	public final double bestPerformance;
+	/**
+	 * Why the solver stopped.
+	 */
+	public final StopReason stopReason;
+	/**
+	 * The number of completed iterations.
+	 */
+	public final int iterations;
+	/**
+	 * The number of samples whose evaluation was started. A sample of a
+	 * TrialFunction counts once for all its trials, and copies made for
+	 * speculation are not counted.
+	 */
+	public final long evaluations;
+	/**
+	 * Wall-clock time spent solving, in nanoseconds.
+	 */
+	public final long elapsedNanos;
+
+	SolverResult(double[] best, double bestPerformance, StopReason stopReason,
+		int iterations, long evaluations, long elapsedNanos) {
+		this(best, null, bestPerformance, stopReason, iterations, evaluations, elapsedNanos);
+	}
+
+	SolverResult(double[] best, long[] bestBits, double bestPerformance, StopReason stopReason,
+		int iterations, long evaluations, long elapsedNanos) {
+		this.best = best;
+		this.bestBits = bestBits;
+		this.bestPerformance = bestPerformance;
+		this.stopReason = stopReason;
+		this.iterations = iterations;
+		this.evaluations = evaluations;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Stopped after " + iterations + " iterations (" + stopReason + "), " +
+			evaluations + " evaluations, " + elapsedNanos / 1000000 / 1000.0 + " seconds.";
+	}
+}
@@ -10,22 +10,117 @@ class Subproblem {
 	 */
 	Function problem;
 	/**
-	 * parameters to use.
+	 * binary problem to use, if problem is null.
+	 */
+	BinaryFunction binaryProblem;
+	/**
+	 * bits to evaluate with binaryProblem.
+	 */
+	long[] bits;
+	/**
+	 * parameters to use, or null to draw them from distribution.
 	 */
 	double[] parameters;
+	/**
+	 * distribution to draw the parameters from, if parameters is null.
+	 */
+	SeededDistribution distribution;
+	/**
+	 * seed of the parameters in distribution.
+	 */
+	long seed;
+	/**
+	 * version of distribution the seed was drawn for.
+	 */
+	int version;
+	/**
+	 * round of evaluations this problem belongs to (in CESolver).
+	 */
+	long round;
+	/**
+	 * value of System.nanoTime() when a worker started on this problem, 0 before.
+	 */
+	volatile long started;
 	/**
 	 * index of parameters (in CESolver).
 	 */
 	int index;
+	/**
+	 * trial to run if problem is a TrialFunction, or -1 to evaluate the fitness.
+	 */
+	int trial;
 
 	/**
 	 * @param p problem to use.
 	 * @param params parameter vector to evaluate.
 	 * @param i index of this parameter vector (see CESolver).
+	 * @param t trial to run, or -1 to evaluate the fitness.
 	 */
-	public Subproblem(Function p, double[] params, int i) {
+	public Subproblem(Function p, double[] params, int i, int t) {
 		problem = p;
 		parameters = params;
 		index = i;
+		trial = t;
+	}
+
+	/**
+	 * @param p problem to use.
+	 * @param d distribution to draw the parameter vector from.
+	 * @param seed seed of the parameter vector in d.
+	 * @param i index of this parameter vector (see CESolver).
+	 * @param t trial to run, or -1 to evaluate the fitness.
+	 */
+	public Subproblem(Function p, SeededDistribution d, long seed, int i, int t) {
+		problem = p;
+		distribution = d;
+		this.seed = seed;
+		version = d.version();
+		index = i;
+		trial = t;
+	}
+
+	/**
+	 * @param p binary problem to use.
+	 * @param bits bits to evaluate.
+	 * @param i index of the bits (see CESolver).
+	 */
+	public Subproblem(BinaryFunction p, long[] bits, int i) {
+		binaryProblem = p;
+		this.bits = bits;
+		index = i;
+		trial = -1;
+	}
+
+	/**
+	 * @return A problem that has not been started, to evaluate the same parameters again.
+	 */
+	Subproblem copy() {
+		Subproblem copy = bits != null ? new Subproblem(binaryProblem, bits, index)
+			: parameters != null ? new Subproblem(problem, parameters, index, trial)
+			: new Subproblem(problem, distribution, seed, index, trial);
+		copy.version = version;
+		copy.round = round;
+		return copy;
+	}
+
+	/**
+	 * @return A number identifying the evaluation this problem is part of,
+	 * shared by its trials and copies, and different for every index of every round.
+	 */
+	long sample() {
+		return round << 32 | index;
+	}
+
+	/**
+	 * @return The parameters, drawn from the distribution if only the seed is known.
+	 */
+	double[] parameters() {
+		if(parameters != null) {
+			return parameters;
+		}
+		if(distribution.version() != version) {
+			throw new IllegalStateException("The distribution changed since the seed was drawn.");
+		}
+		return distribution.sample(seed);
 	}
 }
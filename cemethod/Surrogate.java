@@ -0,0 +1,28 @@
+package cemethod;
+
+/**
+ * A cheap model of the function being optimized, fitted to the samples
+ * CESolver has evaluated. CESolver uses it to choose which of many drawn
+ * candidates are worth a true evaluation, see CESolver.setSurrogate().
+ * Only the ranking of the predictions matters.
+ */
+public interface Surrogate {
+	/**
+	 * Forgets all evaluations, e.g. when the problem changes.
+	 */
+	void clear();
+
+	/**
+	 * Adds the evaluated samples of an iteration and refits the model.
+	 * @param points the samples.
+	 * @param performances the performance of each sample.
+	 */
+	void update(double[][] points, double[] performances);
+
+	/**
+	 * Only called after update().
+	 * @param v a vector of the dimension of the problem.
+	 * @return The predicted performance of v.
+	 */
+	double predict(double[] v);
+}
@@ -0,0 +1,80 @@
+package cemethod;
+
+/**
+ * An IterationListener that records the first iteration in which the best
+ * performance, or the mean performance of the elites, reached a target,
+ * and the time from the start of solve() to the end of that iteration.
+ */
+public final class TargetWatch implements IterationListener {
+	private final double target;
+	/**
+	 * True to watch the mean performance of the elites, false for the best performance.
+	 */
+	private final boolean eliteMean;
+	private int reachedIteration = -1;
+	private long reachedNanos = -1;
+	private IterationSummary last;
+
+	private TargetWatch(double target, boolean eliteMean) {
+		this.target = target;
+		this.eliteMean = eliteMean;
+	}
+
+	/**
+	 * @param target the performance to reach.
+	 * @return A watch of the best performance of each iteration.
+	 */
+	public static TargetWatch best(double target) {
+		return new TargetWatch(target, false);
+	}
+
+	/**
+	 * @param target the performance to reach.
+	 * @return A watch of the mean performance of the elites of each iteration.
+	 */
+	public static TargetWatch eliteMean(double target) {
+		return new TargetWatch(target, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see cemethod.IterationListener#iterationDone(cemethod.IterationSummary)
+	 */
+	@Override
+	public void iterationDone(IterationSummary summary) {
+		double performance = eliteMean ? summary.eliteMean : summary.bestPerformance;
+		if(reachedIteration < 0 && performance >= target) {
+			reachedIteration = summary.iteration;
+			reachedNanos = summary.totalNanos;
+		}
+		last = summary;
+	}
+
+	/**
+	 * @return True if the target was reached.
+	 */
+	public boolean reached() {
+		return reachedIteration > 0;
+	}
+
+	/**
+	 * @return The first iteration that reached the target, or -1 if none did.
+	 */
+	public int reachedIteration() {
+		return reachedIteration;
+	}
+
+	/**
+	 * @return The time from the start of solve() until the end of the first
+	 * iteration that reached the target, in nanoseconds, or -1 if none did.
+	 */
+	public long reachedNanos() {
+		return reachedNanos;
+	}
+
+	/**
+	 * @return The summary of the last iteration, or null before the first.
+	 */
+	public IterationSummary last() {
+		return last;
+	}
+}
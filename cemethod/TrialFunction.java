@@ -0,0 +1,77 @@
+package cemethod;
+
+/**
+ * A function whose value is combined from several independent trials,
+ * as is common for stochastic functions. CESolver evaluates the trials
+ * of a vector in parallel, so that all threads can be used even when
+ * there are few samples per iteration.
+ * Note: <b>All functions must be thread-safe.</b>
+ */
+public interface TrialFunction extends Function {
+	/**
+	 * @return The number of trials fitness() combines.
+	 */
+	int trials();
+
+	/**
+	 * This function may not mutate v.
+	 * @param v vector to evaluate, of length dimension().
+	 * @param trial the index of the trial, between 0 and trials() - 1.
+	 * @return The result of a single trial at v.
+	 */
+	double trial(double[] v, int trial);
+
+	/**
+	 * Like trial(), also telling whether the trial was stopped before it ended.
+	 * CESolver numbers the evaluations it dispatches, and passes the number
+	 * of the evaluation the trial belongs to as sample, so that a stochastic
+	 * function can draw its randomness from (sample, trial) rather than from
+	 * whichever thread runs the trial. Other callers pass a negative sample.
+	 * The default runs trial(), whose trials are never stopped.
+	 * @param v vector to evaluate, of length dimension().
+	 * @param sample the number of the evaluation, or negative if there is none.
+	 * @param trial the index of the trial, between 0 and trials() - 1.
+	 * @return The result of a single trial at v.
+	 */
+	default TrialResult censoredTrial(double[] v, long sample, int trial) {
+		return new TrialResult(trial(v, trial), false);
+	}
+
+	/**
+	 * CESolver only dispatches copies of slow trials, see
+	 * CESolver.setSpeculationThreshold(), if this returns true. Otherwise the
+	 * copy that finishes first would be used, which biases the results towards
+	 * quick trials, such as short games. The default is false.
+	 * @return True if the result of censoredTrial(v, sample, trial) depends only
+	 * on v, sample and trial, for non-negative sample.
+	 */
+	default boolean repeatableTrials() {
+		return false;
+	}
+
+	/**
+	 * Combines the results of all trials of a vector into its fitness,
+	 * the same way fitness() does. The default is the mean.
+	 * @param results the results of trials 0, ..., trials() - 1.
+	 * @return The fitness.
+	 */
+	default double combine(double[] results) {
+		double sum = 0;
+		for(double x : results) {
+			sum += x;
+		}
+		return sum / results.length;
+	}
+
+	/**
+	 * Combines the results of all trials of a vector, some of which may have
+	 * been stopped before they ended, into its fitness. CESolver calls this
+	 * rather than combine(results). The default ignores censoring.
+	 * @param results the values of trials 0, ..., trials() - 1.
+	 * @param censored for each trial, true if it was stopped before it ended.
+	 * @return The fitness.
+	 */
+	default double combine(double[] results, boolean[] censored) {
+		return combine(results);
+	}
+}
@@ -0,0 +1,26 @@
+package cemethod;
+
+/**
+ * The result of a single trial of a TrialFunction. A trial may be stopped
+ * before it ends, e.g. at a length limit, and is then censored: its value
+ * is only what it reached before it was stopped.
+ */
+public final class TrialResult {
+	/**
+	 * The value of the trial.
+	 */
+	public final double value;
+	/**
+	 * True if the trial was stopped before it ended.
+	 */
+	public final boolean censored;
+
+	/**
+	 * @param value the value of the trial.
+	 * @param censored true if the trial was stopped before it ended.
+	 */
+	public TrialResult(double value, boolean censored) {
+		this.value = value;
+		this.censored = censored;
+	}
+}
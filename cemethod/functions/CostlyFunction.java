@@ -0,0 +1,44 @@
+package cemethod.functions;
+
+import cemethod.Function;
+
+/**
+ * Wraps a function so that each evaluation takes at least a given time,
+ * to simulate expensive functions. The time is spent spinning rather than
+ * sleeping, so that the evaluation occupies a processor like real work does.
+ */
+public class CostlyFunction implements Function {
+	private final Function f;
+	private final long nanos;
+
+	/**
+	 * @param f the function to evaluate.
+	 * @param nanos the minimal time of an evaluation, in nanoseconds.
+	 */
+	public CostlyFunction(Function f, long nanos) {
+		this.f = f;
+		this.nanos = nanos;
+	}
+
+	/**
+	 * @return The minimal time of an evaluation, in nanoseconds.
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public int dimension() {
+		return f.dimension();
+	}
+
+	@Override
+	public double fitness(double[] v) {
+		long start = System.nanoTime();
+		double fitness = f.fitness(v);
+		while(System.nanoTime() - start < nanos) {
+			// Spin.
+		}
+		return fitness;
+	}
+}
@@ -0,0 +1,34 @@
+package cemethod.functions;
+
+import cemethod.Function;
+
+/**
+ * Griewank's function, negated. Many regularly spaced local maxima on top of
+ * a parabola. The maximum is 0, at the origin.
+ */
+public class Griewank implements Function {
+	private final int dim;
+
+	/**
+	 * @param dim The dimension of this problem.
+	 */
+	public Griewank(int dim) {
+		this.dim = dim;
+	}
+
+	@Override
+	public int dimension() {
+		return dim;
+	}
+
+	@Override
+	public double fitness(double[] v) {
+		double s = 0;
+		double p = 1;
+		for(int i = 0; i < v.length; i++) {
+			s += v[i] * v[i] / 4000;
+			p *= Math.cos(v[i] / Math.sqrt(i + 1));
+		}
+		return -(1 + s - p);
+	}
+}
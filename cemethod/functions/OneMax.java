@@ -0,0 +1,31 @@
+package cemethod.functions;
+
+import cemethod.BinaryFunction;
+
+/**
+ * The number of set bits. The maximum is the length, with all bits set.
+ */
+public class OneMax implements BinaryFunction {
+	private final int length;
+
+	/**
+	 * @param length The number of bits of this problem.
+	 */
+	public OneMax(int length) {
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public double fitness(long[] bits) {
+		int s = 0;
+		for(long w : bits) {
+			s += Long.bitCount(w);
+		}
+		return s;
+	}
+}
@@ -0,0 +1,32 @@
+package cemethod.functions;
+
+import cemethod.Function;
+
+/**
+ * Rastrigin's function, negated. Highly multimodal, with a local maximum near
+ * every integer point. The maximum is 0, at the origin.
+ */
+public class Rastrigin implements Function {
+	private final int dim;
+
+	/**
+	 * @param dim The dimension of this problem.
+	 */
+	public Rastrigin(int dim) {
+		this.dim = dim;
+	}
+
+	@Override
+	public int dimension() {
+		return dim;
+	}
+
+	@Override
+	public double fitness(double[] v) {
+		double s = 10 * dim;
+		for(int i = 0; i < v.length; i++) {
+			s += v[i] * v[i] - 10 * Math.cos(2 * Math.PI * v[i]);
+		}
+		return -s;
+	}
+}
@@ -0,0 +1,35 @@
+package cemethod.functions;
+
+import cemethod.Function;
+
+/**
+ * Rosenbrock's function, negated. The maximum is 0, at (1, ..., 1), at the
+ * end of a long curved valley which is easy to find but hard to follow.
+ */
+public class Rosenbrock implements Function {
+	private final int dim;
+
+	/**
+	 * @param dim The dimension of this problem, at least 2.
+	 */
+	public Rosenbrock(int dim) {
+		if(dim < 2) { throw new IllegalArgumentException("Rosenbrock's function needs at least two dimensions."); }
+		this.dim = dim;
+	}
+
+	@Override
+	public int dimension() {
+		return dim;
+	}
+
+	@Override
+	public double fitness(double[] v) {
+		double s = 0;
+		for(int i = 0; i + 1 < v.length; i++) {
+			double a = v[i + 1] - v[i] * v[i];
+			double b = 1 - v[i];
+			s += 100 * a * a + b * b;
+		}
+		return -s;
+	}
+}
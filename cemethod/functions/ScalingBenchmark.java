@@ -0,0 +1,208 @@
+package cemethod.functions;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.math3.random.MersenneTwister;
+
+import cemethod.CESolver;
+import cemethod.Function;
+import cemethod.Main;
+import cemethod.NormalDistribution;
+import cemethod.SolverResult;
+import cemethod.TargetWatch;
+
+/**
+ * Solves each test function for every combination of thread count, dimension
+ * and sample size, and writes one line of comma separated values per run:
+ * samples evaluated per second (see SolverResult.evaluations), parallel
+ * efficiency relative to the run on one thread, and the time until the best
+ * sample reached the target fitness.
+ * All runs of a combination start from the same seed, and each function is
+ * solved once untimed before its first timed run. Times are measured from the
+ * start of solve(), leaving out creating the solver and starting its threads.
+ * <p>
+ * Options, each followed by a value: -threads, -dimensions and -samples take
+ * comma separated lists, -functions a comma separated list of sphere, rastrigin,
+ * rosenbrock, griewank, ackley and costly, -iterations the number of iterations
+ * per run, -cost the time of an evaluation of costly in microseconds, -target
+ * the target fitness and -out the file to write, scaling.csv by default.
+ */
+public final class ScalingBenchmark {
+	/**
+	 * The test functions, with where to start looking for the maximum.
+	 */
+	private enum Problem {
+		SPHERE(5) {
+			@Override
+			Function create(int dim, long costNanos) {
+				return new Sphere(dim);
+			}
+		},
+		RASTRIGIN(5) {
+			@Override
+			Function create(int dim, long costNanos) {
+				return new Rastrigin(dim);
+			}
+		},
+		ROSENBROCK(2) {
+			@Override
+			Function create(int dim, long costNanos) {
+				return new Rosenbrock(dim);
+			}
+		},
+		GRIEWANK(600) {
+			@Override
+			Function create(int dim, long costNanos) {
+				return new Griewank(dim);
+			}
+		},
+		ACKLEY(10) {
+			@Override
+			Function create(int dim, long costNanos) {
+				return new Main.Ackley(dim);
+			}
+		},
+		COSTLY(5) {
+			@Override
+			Function create(int dim, long costNanos) {
+				return new CostlyFunction(new Sphere(dim), costNanos);
+			}
+		};
+
+		/**
+		 * The initial guess is drawn uniformly from [-range, range] in each component.
+		 */
+		final double range;
+
+		Problem(double range) {
+			this.range = range;
+		}
+
+		abstract Function create(int dim, long costNanos);
+	}
+
+	private ScalingBenchmark() {
+	}
+
+	/**
+	 * @param args options, see the class comment.
+	 * @throws IOException if the output cannot be written.
+	 * @throws InterruptedException if interrupted.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int[] threads = {1, 2, 4};
+		int[] dimensions = {10, 100};
+		int[] samples = {100, 1000};
+		String functions = "sphere,rastrigin,rosenbrock,griewank,ackley,costly";
+		int iterations = 50;
+		long costNanos = 100000;
+		double target = -0.01;
+		String out = "scaling.csv";
+		if(args.length % 2 != 0) {
+			throw new IllegalArgumentException("Option " + args[args.length - 1] + " has no value.");
+		}
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			if(args[i].equals("-threads")) {
+				threads = parseList(value);
+			} else if(args[i].equals("-dimensions")) {
+				dimensions = parseList(value);
+			} else if(args[i].equals("-samples")) {
+				samples = parseList(value);
+			} else if(args[i].equals("-functions")) {
+				functions = value;
+			} else if(args[i].equals("-iterations")) {
+				iterations = Integer.parseInt(value);
+			} else if(args[i].equals("-cost")) {
+				costNanos = Long.parseLong(value) * 1000;
+			} else if(args[i].equals("-target")) {
+				target = Double.parseDouble(value);
+			} else if(args[i].equals("-out")) {
+				out = value;
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		PrintWriter pw = new PrintWriter(new FileWriter(out));
+		try {
+			pw.println("function,dimension,samples,threads,iterations,evaluations,seconds,"
+				+ "evaluations_per_second,parallel_efficiency,best_fitness,target,"
+				+ "seconds_to_target,stop_reason");
+			// Evaluations per second on one thread, by function, dimension and sample size.
+			Map<String, Double> single = new HashMap<String, Double>();
+			for(String name : functions.split(",")) {
+				Problem problem = Problem.valueOf(name.trim().toUpperCase(Locale.ROOT));
+				// An untimed run first, so that the first timed run does not pay for the JIT compiler.
+				run(problem.create(dimensions[0], costNanos), problem.range, threads[0], samples[0],
+					iterations, TargetWatch.best(target));
+				for(int dim : dimensions) {
+					for(int n : samples) {
+						for(int t : threads) {
+							String key = problem + "," + dim + "," + n;
+							TargetWatch watch = TargetWatch.best(target);
+							SolverResult result = run(problem.create(dim, costNanos), problem.range,
+								t, n, iterations, watch);
+							double seconds = result.elapsedNanos / 1e9;
+							double rate = result.evaluations / seconds;
+							if(t == 1) {
+								single.put(key, rate);
+							}
+							Double base = single.get(key);
+							String line = String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%.6f,%.1f,%s,%.6g,%s,%s,%s",
+								problem.name().toLowerCase(Locale.ROOT), dim, n, t, result.iterations,
+								result.evaluations, seconds, rate,
+								base == null ? "" : String.format(Locale.ROOT, "%.4f", rate / base / t),
+								result.bestPerformance, target,
+								!watch.reached() ? "" : String.format(Locale.ROOT, "%.6f", watch.reachedNanos() / 1e9),
+								result.stopReason);
+							pw.println(line);
+							pw.flush();
+							System.out.println(line);
+						}
+					}
+				}
+			}
+		} finally {
+			pw.close();
+		}
+	}
+
+	private static SolverResult run(Function f, double range, int threads, int samples,
+		int iterations, TargetWatch watch) throws InterruptedException {
+		MersenneTwister r = new MersenneTwister(1);
+		double[] initialGuess = new double[f.dimension()];
+		for(int i = 0; i < initialGuess.length; i++) {
+			initialGuess[i] = range - 2 * range * r.nextDouble();
+		}
+		CESolver solver = new CESolver(threads, r);
+		try {
+			solver.setProblem(f);
+			solver.setIterationListener(watch);
+			solver.setMaxIterations(iterations);
+			solver.setMinVariance(0);
+			solver.setSamples(samples);
+			solver.setElites(Math.max(samples / 10, 2));
+			// Noise on the scale of the search range, gone after half the iterations.
+			solver.setInitialNoise(range * range / 10);
+			solver.setNoiseStep(-range * range / 10 / Math.max(iterations / 2, 1));
+			return solver.solve(new NormalDistribution(r, initialGuess, range * range));
+		} finally {
+			solver.shutdown();
+		}
+	}
+
+	private static int[] parseList(String s) {
+		String[] tokens = s.split(",");
+		int[] ans = new int[tokens.length];
+		for(int i = 0; i < ans.length; i++) {
+			ans[i] = Integer.parseInt(tokens[i].trim());
+		}
+		return ans;
+	}
+}
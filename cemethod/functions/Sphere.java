@@ -0,0 +1,32 @@
+package cemethod.functions;
+
+import cemethod.Function;
+
+/**
+ * The sphere function, minus the sum of the squares of the components.
+ * The maximum is 0, at the origin.
+ */
+public class Sphere implements Function {
+	private final int dim;
+
+	/**
+	 * @param dim The dimension of this problem.
+	 */
+	public Sphere(int dim) {
+		this.dim = dim;
+	}
+
+	@Override
+	public int dimension() {
+		return dim;
+	}
+
+	@Override
+	public double fitness(double[] v) {
+		double s = 0;
+		for(int i = 0; i < v.length; i++) {
+			s += v[i] * v[i];
+		}
+		return -s;
+	}
+}
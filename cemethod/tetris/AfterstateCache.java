@@ -0,0 +1,183 @@
+package cemethod.tetris;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache from afterstates, i.e. the columns of a playfield after
+ * placing a piece, to their score under a fixed parameter vector.
+ * It is an open-addressing hash table, where each state may only be stored
+ * within a short window of slots starting at its hash. When the window is full,
+ * a slot is evicted with the clock (second chance) algorithm.
+ * Not thread-safe, each thread should use its own cache.
+ */
+class AfterstateCache {
+	/**
+	 * The number of slots where a state may be stored.
+	 */
+	private static final int WINDOW = 8;
+	/**
+	 * The number of columns of each state.
+	 */
+	private final int width;
+	/**
+	 * The number of slots minus one. The number of slots is a power of two.
+	 */
+	private final int mask;
+	/**
+	 * The columns of the state in slot i are at keys[i * width], ..., keys[i * width + width - 1].
+	 */
+	private final long[] keys;
+	/**
+	 * The hashes of the states, to avoid most key comparisons.
+	 */
+	private final long[] hashes;
+	/**
+	 * The scores of the states.
+	 */
+	private final double[] values;
+	/**
+	 * The generation each slot was written in. Slots from older generations are empty.
+	 */
+	private final int[] generations;
+	/**
+	 * Set when a slot is used, cleared when the clock hand passes it.
+	 */
+	private final boolean[] referenced;
+	/**
+	 * The current generation, never 0.
+	 */
+	private int generation;
+	/**
+	 * The parameter vector the scores were calculated with.
+	 */
+	private double[] parameters;
+	/**
+	 * The number of calls to get() that found the state.
+	 */
+	private long hits;
+	/**
+	 * The number of calls to get() that did not find the state.
+	 */
+	private long misses;
+
+	/**
+	 * @param width the width of the playfields to cache.
+	 * @param size the maximal number of states to store, rounded up to a power of two.
+	 */
+	AfterstateCache(int width, int size) {
+		int capacity = Integer.highestOneBit(Math.max(size - 1, WINDOW - 1)) << 1;
+		this.width = width;
+		mask = capacity - 1;
+		keys = new long[capacity * width];
+		hashes = new long[capacity];
+		values = new double[capacity];
+		generations = new int[capacity];
+		referenced = new boolean[capacity];
+		generation = 1;
+		parameters = new double[0];
+	}
+
+	/**
+	 * Empties the cache unless it already holds scores for par.
+	 * @param par the parameter vector used for scoring states.
+	 */
+	void setParameters(double[] par) {
+		if(Arrays.equals(par, parameters)) { return; }
+		parameters = Arrays.copyOf(par, par.length);
+		generation++;
+		if(generation == 0) {
+			Arrays.fill(generations, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * @param key contains the columns of the state to look for.
+	 * @param offset the index of the first column of the state in key.
+	 * @return The score of the state, or NaN if it is not in the cache.
+	 */
+	double get(long[] key, int offset) {
+		long h = hash(key, offset);
+		for(int i = 0; i < WINDOW; i++) {
+			int slot = (int)h + i & mask;
+			if(generations[slot] != generation) { break; }
+			if(hashes[slot] == h && keyEquals(slot, key, offset)) {
+				referenced[slot] = true;
+				hits++;
+				return values[slot];
+			}
+		}
+		misses++;
+		return Double.NaN;
+	}
+
+	/**
+	 * Stores the score of a state, or updates it if the state is already in
+	 * the cache, e.g. when two candidates of a batch have the same afterstate.
+	 * @param key contains the columns of the state.
+	 * @param offset the index of the first column of the state in key.
+	 * @param value the score of the state.
+	 */
+	void put(long[] key, int offset, double value) {
+		long h = hash(key, offset);
+		int home = (int)h & mask;
+		int slot = -1;
+		for(int i = 0; i < WINDOW; i++) {
+			int s = home + i & mask;
+			if(generations[s] != generation) {
+				slot = s;
+				break;
+			}
+			if(hashes[s] == h && keyEquals(s, key, offset)) {
+				values[s] = value;
+				return;
+			}
+		}
+		if(slot < 0) {
+			// Clock: evict the first slot that has not been used since the hand last passed it.
+			for(int i = 0; slot < 0; i++) {
+				int s = home + i % WINDOW & mask;
+				if(referenced[s]) {
+					referenced[s] = false;
+				} else {
+					slot = s;
+				}
+			}
+		}
+		System.arraycopy(key, offset, keys, slot * width, width);
+		hashes[slot] = h;
+		values[slot] = value;
+		generations[slot] = generation;
+		referenced[slot] = false;
+	}
+
+	/**
+	 * @return The number of lookups that found the state.
+	 */
+	long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return The number of lookups that did not find the state.
+	 */
+	long getMisses() {
+		return misses;
+	}
+
+	private boolean keyEquals(int slot, long[] key, int offset) {
+		int start = slot * width;
+		for(int c = 0; c < width; c++) {
+			if(keys[start + c] != key[offset + c]) { return false; }
+		}
+		return true;
+	}
+
+	private long hash(long[] key, int offset) {
+		long h = 0;
+		for(int c = 0; c < width; c++) {
+			h = (h + key[offset + c]) * 0x9E3779B97F4A7C15L;
+		}
+		return h ^ h >>> 32;
+	}
+}
@@ -0,0 +1,164 @@
+package cemethod.tetris;
+
+/**
+ * All candidate placements of a single piece, with their features
+ * stored column-major so that they can be scored in one pass.
+ */
+class CandidateBatch {
+	/**
+	 * The maximal number of candidates.
+	 */
+	private final int capacity;
+	/**
+	 * The number of features per candidate.
+	 */
+	private final int dimension;
+	/**
+	 * Feature f of candidate i is at features[f * capacity + i].
+	 */
+	private final int[] features;
+	/**
+	 * The score of each candidate.
+	 */
+	private final double[] scores;
+	/**
+	 * Scratch memory for score().
+	 */
+	private final double[] sums;
+	/**
+	 * True if the score of the candidate is already known, and is not to be
+	 * calculated from its features.
+	 */
+	private final boolean[] known;
+	/**
+	 * The move of each candidate, an index into a MoveTable.
+	 */
+	private final int[] moves;
+	/**
+	 * The number of candidates.
+	 */
+	private int size;
+
+	/**
+	 * @param capacity the maximal number of candidates, see MoveTable.maxMoves().
+	 * @param dimension the number of features per candidate.
+	 */
+	CandidateBatch(int capacity, int dimension) {
+		this.capacity = capacity;
+		this.dimension = dimension;
+		features = new int[capacity * dimension];
+		scores = new double[capacity];
+		sums = new double[capacity];
+		known = new boolean[capacity];
+		moves = new int[capacity];
+	}
+
+	/**
+	 * Removes all candidates.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @param move the move of the candidate.
+	 * @return The index of the new candidate.
+	 */
+	int add(int move) {
+		moves[size] = move;
+		known[size] = false;
+		return size++;
+	}
+
+	/**
+	 * @return The number of candidates.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param i a candidate.
+	 * @param f the features of the candidate, of length dimension.
+	 */
+	void setFeatures(int i, int[] f) {
+		for(int j = 0; j < dimension; j++) {
+			features[j * capacity + i] = f[j];
+		}
+	}
+
+	/**
+	 * @param i a candidate.
+	 * @param score the score of the candidate, which is then not calculated by score().
+	 */
+	void setScore(int i, double score) {
+		scores[i] = score;
+		known[i] = true;
+	}
+
+	/**
+	 * @param i a candidate.
+	 * @return The score of the candidate, valid after score() has been called.
+	 */
+	double getScore(int i) {
+		return scores[i];
+	}
+
+	/**
+	 * @param i a candidate.
+	 * @return True if the score of the candidate was given by setScore().
+	 */
+	boolean isKnown(int i) {
+		return known[i];
+	}
+
+	/**
+	 * Calculates the score of all candidates whose score is not known
+	 * as the dot product of par and their features.
+	 * @param par the weight of each feature.
+	 */
+	void score(double[] par) {
+		int n = size;
+		// Scalar loops over contiguous memory. The JIT may vectorize the element-wise
+		// inner loop, but this is not guaranteed, and scoring was measured no faster
+		// than the plain dot product. Features are added in the same order as in a
+		// plain dot product, so the scores are exactly the same.
+		for(int i = 0; i < n; i++) {
+			sums[i] = 0;
+		}
+		for(int f = 0; f < dimension; f++) {
+			double p = par[f];
+			int offset = f * capacity;
+			for(int i = 0; i < n; i++) {
+				sums[i] += p * features[offset + i];
+			}
+		}
+		for(int i = 0; i < n; i++) {
+			if(!known[i]) {
+				scores[i] = sums[i];
+			}
+		}
+	}
+
+	/**
+	 * @return The index of the candidate with the highest score,
+	 * the first one in case of ties.
+	 */
+	int best() {
+		int best = 0;
+		for(int i = 1; i < size; i++) {
+			if(scores[i] > scores[best]) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param i a candidate.
+	 * @return The move of the candidate.
+	 */
+	int getMove(int i) {
+		return moves[i];
+	}
+}
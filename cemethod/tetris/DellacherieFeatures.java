@@ -0,0 +1,43 @@
+package cemethod.tetris;
+
+/**
+ * The features of Dellacherie's controller, with rows with holes and hole
+ * depth added as by Thiery and Scherrer: landing height, eroded cells,
+ * row transitions, column transitions, holes, cumulative wells,
+ * hole depth and rows with holes.
+ * Landing height and eroded cells are recorded by Playfield when placing,
+ * and the others are computed with operations on whole columns.
+ */
+public class DellacherieFeatures implements FeatureSet {
+
+	/* (non-Javadoc)
+	 * @see tetris.FeatureSet#dimension(tetris.Playfield)
+	 */
+	@Override
+	public int dimension(Playfield pf) {
+		return 8;
+	}
+
+	/* (non-Javadoc)
+	 * @see tetris.FeatureSet#extract(tetris.Playfield, int[])
+	 */
+	@Override
+	public void extract(Playfield pf, int[] output) {
+		output[0] = pf.landingHeight();
+		output[1] = pf.erodedCells();
+		output[2] = pf.rowtrans();
+		output[3] = pf.coltrans();
+		output[4] = pf.holes();
+		output[5] = pf.cumulativeWells();
+		output[6] = pf.holeSums();
+		output[7] = pf.rowsWithHoles();
+	}
+
+	/* (non-Javadoc)
+	 * @see tetris.FeatureSet#dependsOnLastMove()
+	 */
+	@Override
+	public boolean dependsOnLastMove() {
+		return true;
+	}
+}
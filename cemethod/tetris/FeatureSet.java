@@ -16,4 +16,13 @@ public interface FeatureSet {
 	 * @param output output vector of length dimension().
 	 */
 	void extract(Playfield pf, int[] output);
+
+	/**
+	 * Features that depend on how the last piece was placed, and not only on
+	 * the squares of the playfield, rule out caching scores by afterstate.
+	 * @return True if the features depend on the last piece placed.
+	 */
+	default boolean dependsOnLastMove() {
+		return false;
+	}
 }
@@ -0,0 +1,73 @@
+package cemethod.tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cemethod.tetris.FusedFeatures.Feature;
+
+/**
+ * Builds a FusedFeatures from features picked from the catalog in FusedFeatures.Feature.
+ * The features are output in the order they are added.
+ */
+public class FeatureSetBuilder {
+	/**
+	 * The features added so far.
+	 */
+	private final List<Feature> features = new ArrayList<Feature>();
+
+	/**
+	 * @param f the feature to add, not already added.
+	 * @return This builder.
+	 */
+	public FeatureSetBuilder add(Feature f) {
+		if(features.contains(f)) { throw new IllegalArgumentException("Feature " + f + " added twice."); }
+		features.add(f);
+		return this;
+	}
+
+	/**
+	 * @return A feature set computing the features added so far.
+	 */
+	public FusedFeatures build() {
+		if(features.isEmpty()) { throw new IllegalStateException("No features added."); }
+		return new FusedFeatures(features.toArray(new Feature[features.size()]));
+	}
+
+	/**
+	 * @return A builder with the features of SymmetricBertsekasFeatures, in the same
+	 * order, giving the same output on playfields of even width.
+	 */
+	public static FeatureSetBuilder symmetricBertsekas() {
+		return new FeatureSetBuilder()
+			.add(Feature.SYMMETRIC_HEIGHTS)
+			.add(Feature.SYMMETRIC_DIFFERENCES)
+			.add(Feature.HOLES)
+			.add(Feature.MAX_HEIGHT);
+	}
+
+	/**
+	 * @return A builder with the features of SymmetricMixedFeatures, in the same
+	 * order, giving the same output on playfields of even width.
+	 */
+	public static FeatureSetBuilder symmetricMixed() {
+		return symmetricBertsekas()
+			.add(Feature.COLUMN_TRANSITIONS)
+			.add(Feature.ROW_TRANSITIONS)
+			.add(Feature.WELLS);
+	}
+
+	/**
+	 * @return A builder with the features of DellacherieFeatures, in the same order.
+	 */
+	public static FeatureSetBuilder dellacherie() {
+		return new FeatureSetBuilder()
+			.add(Feature.LANDING_HEIGHT)
+			.add(Feature.ERODED_CELLS)
+			.add(Feature.ROW_TRANSITIONS)
+			.add(Feature.COLUMN_TRANSITIONS)
+			.add(Feature.HOLES)
+			.add(Feature.CUMULATIVE_WELLS)
+			.add(Feature.HOLE_DEPTH)
+			.add(Feature.ROWS_WITH_HOLES);
+	}
+}
@@ -0,0 +1,265 @@
+package cemethod.tetris;
+
+/**
+ * A FeatureSet made of features chosen from a catalog, see FeatureSetBuilder.
+ * All per-column features are computed in a single sweep over the heights,
+ * and the aggregate features are read from the sums Playfield keeps up to
+ * date, so that extracting does not call other feature sets or loop over
+ * the playfield more than once.
+ */
+public class FusedFeatures implements FeatureSet {
+	/**
+	 * The catalog of features. W is the width of the playfield,
+	 * and h(c) the height of column c.
+	 */
+	public enum Feature {
+		/**
+		 * W features: h(c).
+		 */
+		HEIGHTS,
+		/**
+		 * W - 1 features: |h(c + 1) - h(c)|.
+		 */
+		HEIGHT_DIFFERENCES,
+		/**
+		 * (W + 1) / 2 features: h(c) + h(W - 1 - c), and h(c) alone for the
+		 * middle column of an odd width.
+		 */
+		SYMMETRIC_HEIGHTS,
+		/**
+		 * W / 2 features: the height differences, with the difference
+		 * between columns c, c + 1 added to the one between W - 2 - c, W - 1 - c.
+		 */
+		SYMMETRIC_DIFFERENCES,
+		/**
+		 * The height of the highest column.
+		 */
+		MAX_HEIGHT,
+		/**
+		 * The sum of the heights.
+		 */
+		HEIGHT_SUM,
+		/**
+		 * The sum of the height differences.
+		 */
+		BUMPINESS,
+		/**
+		 * The number of empty squares with a full square somewhere above it.
+		 */
+		HOLES,
+		/**
+		 * The number of holes below each full square, summed.
+		 */
+		HOLE_DEPTH,
+		/**
+		 * The number of transitions between full and empty squares within columns.
+		 */
+		COLUMN_TRANSITIONS,
+		/**
+		 * The number of transitions between full and empty squares within rows.
+		 */
+		ROW_TRANSITIONS,
+		/**
+		 * The sum of the depths of the wells, see Playfield.wellsum().
+		 */
+		WELLS,
+		/**
+		 * Twice the height of the center of the last piece placed.
+		 */
+		LANDING_HEIGHT,
+		/**
+		 * The rows cleared by the last piece placed, times its squares in them.
+		 */
+		ERODED_CELLS,
+		/**
+		 * The number of rows with at least one hole.
+		 */
+		ROWS_WITH_HOLES,
+		/**
+		 * The wells, with a well of depth d counting 1 + 2 + ... + d,
+		 * see Playfield.cumulativeWells().
+		 */
+		CUMULATIVE_WELLS;
+
+		/**
+		 * @param width the width of the playfield.
+		 * @return The number of values of the feature.
+		 */
+		public int size(int width) {
+			switch(this) {
+			case HEIGHTS:
+				return width;
+			case HEIGHT_DIFFERENCES:
+				return width - 1;
+			case SYMMETRIC_HEIGHTS:
+				return (width + 1) / 2;
+			case SYMMETRIC_DIFFERENCES:
+				return width / 2;
+			default:
+				return 1;
+			}
+		}
+	}
+
+	/**
+	 * Where each feature goes in the output for one width.
+	 */
+	private static final class Layout {
+		/**
+		 * The width of the playfield.
+		 */
+		final int width;
+		/**
+		 * The total number of values.
+		 */
+		final int dimension;
+		/**
+		 * The index of the first value of each feature, by ordinal, -1 if not selected.
+		 */
+		final int[] offset;
+
+		Layout(Feature[] features, int width) {
+			this.width = width;
+			offset = new int[Feature.values().length];
+			for(int i = 0; i < offset.length; i++) {
+				offset[i] = -1;
+			}
+			int n = 0;
+			for(Feature f : features) {
+				offset[f.ordinal()] = n;
+				n += f.size(width);
+			}
+			dimension = n;
+		}
+	}
+
+	/**
+	 * The features, in output order.
+	 */
+	private final Feature[] features;
+	/**
+	 * The layout for the width last used. Replaced, never mutated, so it can be shared between threads.
+	 */
+	private volatile Layout layout;
+
+	/**
+	 * @param features the features, in output order, each at most once.
+	 */
+	FusedFeatures(Feature[] features) {
+		this.features = features.clone();
+		layout = new Layout(this.features, 0);
+	}
+
+	/**
+	 * @return The features, in output order.
+	 */
+	public Feature[] getFeatures() {
+		return features.clone();
+	}
+
+	/* (non-Javadoc)
+	 * @see tetris.FeatureSet#dimension(tetris.Playfield)
+	 */
+	@Override
+	public int dimension(Playfield pf) {
+		return layout(pf.width).dimension;
+	}
+
+	/* (non-Javadoc)
+	 * @see tetris.FeatureSet#extract(tetris.Playfield, int[])
+	 */
+	@Override
+	public void extract(Playfield pf, int[] output) {
+		int width = pf.width;
+		int[] offset = layout(width).offset;
+		int[] h = pf.heightOf;
+		int heights = offset[Feature.HEIGHTS.ordinal()];
+		int differences = offset[Feature.HEIGHT_DIFFERENCES.ordinal()];
+		int symHeights = offset[Feature.SYMMETRIC_HEIGHTS.ordinal()];
+		int symDifferences = offset[Feature.SYMMETRIC_DIFFERENCES.ordinal()];
+		int bumpiness = 0;
+		// Sweep from both ends towards the middle, handling column c and its mirror
+		// image m together, so that each symmetric value is written once.
+		int half = width / 2;
+		for(int c = 0; c < half; c++) {
+			int m = width - 1 - c;
+			int left = h[c];
+			int right = h[m];
+			// The differences between c, c + 1 and between m - 1, m,
+			// which are the same one in the middle of an even width.
+			int dl = abs(h[c + 1] - left);
+			int dr = c < m - 1 ? abs(right - h[m - 1]) : 0;
+			bumpiness += dl + dr;
+			if(heights >= 0) {
+				output[heights + c] = left;
+				output[heights + m] = right;
+			}
+			if(symHeights >= 0) {
+				output[symHeights + c] = left + right;
+			}
+			if(differences >= 0) {
+				output[differences + c] = dl;
+				if(c < m - 1) {
+					output[differences + m - 1] = dr;
+				}
+			}
+			if(symDifferences >= 0) {
+				output[symDifferences + c] = dl + dr;
+			}
+		}
+		if(width % 2 == 1) {
+			if(heights >= 0) {
+				output[heights + half] = h[half];
+			}
+			if(symHeights >= 0) {
+				output[symHeights + half] = h[half];
+			}
+		}
+		int o = offset[Feature.MAX_HEIGHT.ordinal()];
+		if(o >= 0) { output[o] = pf.maxHeight(); }
+		o = offset[Feature.HEIGHT_SUM.ordinal()];
+		if(o >= 0) { output[o] = pf.heightSum(); }
+		o = offset[Feature.BUMPINESS.ordinal()];
+		if(o >= 0) { output[o] = bumpiness; }
+		o = offset[Feature.HOLES.ordinal()];
+		if(o >= 0) { output[o] = pf.holes(); }
+		o = offset[Feature.HOLE_DEPTH.ordinal()];
+		if(o >= 0) { output[o] = pf.holeSums(); }
+		o = offset[Feature.COLUMN_TRANSITIONS.ordinal()];
+		if(o >= 0) { output[o] = pf.coltrans(); }
+		o = offset[Feature.ROW_TRANSITIONS.ordinal()];
+		if(o >= 0) { output[o] = pf.rowtrans(); }
+		o = offset[Feature.WELLS.ordinal()];
+		if(o >= 0) { output[o] = pf.wellsum(); }
+		o = offset[Feature.LANDING_HEIGHT.ordinal()];
+		if(o >= 0) { output[o] = pf.landingHeight(); }
+		o = offset[Feature.ERODED_CELLS.ordinal()];
+		if(o >= 0) { output[o] = pf.erodedCells(); }
+		o = offset[Feature.ROWS_WITH_HOLES.ordinal()];
+		if(o >= 0) { output[o] = pf.rowsWithHoles(); }
+		o = offset[Feature.CUMULATIVE_WELLS.ordinal()];
+		if(o >= 0) { output[o] = pf.cumulativeWells(); }
+	}
+
+	/* (non-Javadoc)
+	 * @see tetris.FeatureSet#dependsOnLastMove()
+	 */
+	@Override
+	public boolean dependsOnLastMove() {
+		int[] offset = layout.offset;
+		return offset[Feature.LANDING_HEIGHT.ordinal()] >= 0 || offset[Feature.ERODED_CELLS.ordinal()] >= 0;
+	}
+
+	private Layout layout(int width) {
+		Layout l = layout;
+		if(l.width != width) {
+			l = new Layout(features, width);
+			layout = l;
+		}
+		return l;
+	}
+
+	private static int abs(int x) {
+		return x > 0 ? x : -x;
+	}
+}
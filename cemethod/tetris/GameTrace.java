@@ -0,0 +1,124 @@
+package cemethod.tetris;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A recorded Tetris game, see TraceRecorder and TraceReplayer.
+ * <p>
+ * Each move is stored as its index in the table of all moves for the
+ * width of the playfield, which also determines the piece. Indices below
+ * 0xF0 take one byte, others two: 0xF0 | (index - 0xF0) >> 8 followed by
+ * the low eight bits of index - 0xF0. With the standard pieces, every move
+ * on a playfield of width 10 takes one byte.
+ * <p>
+ * If snapshotInterval is positive, a snapshot of the board is stored before
+ * every move whose number is a positive multiple of snapshotInterval:
+ * the number of lines cleared so far as an int, followed by the columns
+ * as longs, all big-endian.
+ * <p>
+ * In a file, the trace is preceded by the magic number 0x43455452 ("CETR"),
+ * a version byte, the width and height as shorts, and snapshotInterval,
+ * the number of moves and the number of bytes of the trace as ints.
+ */
+public final class GameTrace {
+	/**
+	 * Identifies trace files.
+	 */
+	private static final int MAGIC = 0x43455452;
+	/**
+	 * The version of the file format.
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * Move indices from this one on are stored in two bytes.
+	 */
+	static final int TWO_BYTES = 0xF0;
+	/**
+	 * The largest move index that can be stored.
+	 */
+	static final int MAX_MOVE = TWO_BYTES + 0x0FFF;
+	/**
+	 * The width of the playfield.
+	 */
+	public final int width;
+	/**
+	 * The height of the playfield.
+	 */
+	public final int height;
+	/**
+	 * The number of moves between snapshots, 0 if there are none.
+	 */
+	public final int snapshotInterval;
+	/**
+	 * The number of moves in the game.
+	 */
+	public final int moves;
+	/**
+	 * The encoded moves and snapshots.
+	 */
+	private final byte[] data;
+
+	GameTrace(int width, int height, int snapshotInterval, int moves, byte[] data) {
+		this.width = width;
+		this.height = height;
+		this.snapshotInterval = snapshotInterval;
+		this.moves = moves;
+		this.data = data;
+	}
+
+	/**
+	 * @return The encoded moves and snapshots, not to be modified.
+	 */
+	byte[] data() {
+		return data;
+	}
+
+	/**
+	 * @return The size of the trace in bytes, without the file header.
+	 */
+	public int size() {
+		return data.length;
+	}
+
+	/**
+	 * @param out where to write the trace, including the file header.
+	 * @throws IOException if out throws.
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(MAGIC);
+		dos.writeByte(VERSION);
+		dos.writeShort(width);
+		dos.writeShort(height);
+		dos.writeInt(snapshotInterval);
+		dos.writeInt(moves);
+		dos.writeInt(data.length);
+		dos.write(data);
+		dos.flush();
+	}
+
+	/**
+	 * @param in a stream positioned at a trace written by write().
+	 * @return The trace.
+	 * @throws IOException if in throws, or does not contain a trace.
+	 */
+	public static GameTrace read(InputStream in) throws IOException {
+		DataInputStream dis = new DataInputStream(in);
+		if(dis.readInt() != MAGIC) { throw new IOException("Not a game trace."); }
+		int version = dis.readUnsignedByte();
+		if(version != VERSION) { throw new IOException("Unknown game trace version " + version + "."); }
+		int width = dis.readUnsignedShort();
+		int height = dis.readUnsignedShort();
+		int snapshotInterval = dis.readInt();
+		int moves = dis.readInt();
+		int size = dis.readInt();
+		if(snapshotInterval < 0 || moves < 0 || size < 0) { throw new IOException("Corrupt game trace."); }
+		byte[] data = new byte[size];
+		dis.readFully(data);
+		return new GameTrace(width, height, snapshotInterval, moves, data);
+	}
+}
@@ -8,11 +8,11 @@ import java.util.Arrays;
 public class Grid {
 	/**
 	 * Representation of the columns of the playfield.
-	 * Each entry is an integer, where bit i is set
+	 * Each entry is a long, where bit i is set
 	 * whenever the i:th square of the column, counted
 	 * from the bottom, is full.  
 	 */
-	protected final int[] columns;
+	protected final long[] columns;
 	/**
 	 * The height of the columns, cached for performance
 	 */
@@ -34,21 +34,31 @@ public class Grid {
 	/**
 	 * Whether to use run-time invariant detection. 
 	 */
-	protected static final boolean DEBUG = true;
+	protected static boolean debug = true;
 
 	/**
 	 * @param width width of the grid.
 	 * @param height height of the grid.
 	 */
 	public Grid(int width, int height) {
-		if(height > 30) { throw new IllegalArgumentException("Height too large for Grid."); }
+		if(height > 62) { throw new IllegalArgumentException("Height too large for Grid."); }
 		this.width = width;
 		this.height = height;
-		columns = new int[width];
+		columns = new long[width];
 		heightOf = new int[width];
 		nFull = 0;
 	}
 
+	/**
+	 * Run-time invariant detection costs O(width * height) per move, so it
+	 * should be turned off for long simulations. Should be called before
+	 * any grids are used by other threads.
+	 * @param on whether to use run-time invariant detection.
+	 */
+	public static void setDebug(boolean on) {
+		debug = on;
+	}
+
 	/**
 	 * Mutates this to make it a copy of g. g must have the same width
 	 * and height.
@@ -60,7 +70,7 @@ public class Grid {
 			heightOf[c] = g.heightOf[c];
 		}
 		nFull = g.nFull;
-		if(DEBUG) {
+		if(debug) {
 			checkInvariants();
 		}
 	}
@@ -70,13 +80,7 @@ public class Grid {
 	 * @return The height of column number column.
 	 */
 	protected int calculateHeight(int column) {
-		int c = columns[column];
-		int ans = 0;
-		while(c > 0) {
-			ans += 1;
-			c >>= 1;
-		}
-		return ans;
+		return Long.SIZE - Long.numberOfLeadingZeros(columns[column]);
 	}
 
 	/**
@@ -85,7 +89,7 @@ public class Grid {
 	 * @return True if (row, col) is full.
 	 */
 	protected boolean isSquareFull(int row, int col) {
-		return (columns[col] & 1 << row) != 0;
+		return (columns[col] & 1L << row) != 0;
 	}
 
 	/* (non-Javadoc)
@@ -96,7 +100,7 @@ public class Grid {
 		StringBuilder s = new StringBuilder();
 		s.append(height + "x" + width + " grid:\n");
 		for(int i = height - 1; i >= 0; i--) {
-			for(int column : columns) {
+			for(long column : columns) {
 				s.append((column >> i & 1) == 1 ? 'X' : ' ');
 			}
 			s.append('\n');
@@ -143,7 +147,7 @@ public class Grid {
 	 */
 	protected int calcFull() {
 		int full = 0;
-		for(int w = 0; w < height + 4; w++) {
+		for(int w = 0; w < Long.SIZE; w++) {
 			for(int c = 0; c < width; c++) {
 				if(isSquareFull(w, c)) {
 					full++;
@@ -158,12 +162,12 @@ public class Grid {
 	 */
 	private int numberOfHoles() {
 		int ans = 0;
-		for(int c : columns) {
-			while(c > 0) {
+		for(long c : columns) {
+			while(c != 0) {
 				if((c & 1) == 0) {
 					ans++;
 				}
-				c >>= 1;
+				c >>>= 1;
 			}
 		}
 		return ans;
@@ -1,12 +1,23 @@
 package cemethod.tetris;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.util.Random;
 
 import org.apache.commons.math3.random.MersenneTwister;
 
 import cemethod.CESolver;
 import cemethod.Distribution;
+import cemethod.EvaluationResult;
 import cemethod.NormalDistribution;
+import cemethod.SolverResult;
 
 /**
  * Main runs a training session for Tetris. 
@@ -23,6 +34,8 @@ public final class Main {
 		// To benchmark: give all RNGs an explicit seed
 		// and change number of threads to 1.
 		// This should make the execution deterministic.
+		// Turn on invariant checking when changing Playfield.
+		Grid.setDebug(false);
 
 		int width = 10;
 		int trainingHeight = 12;
@@ -34,10 +47,14 @@ public final class Main {
 		double noiseStep = -0.1;
 		int sampleSize = 100;
 		int elitesSize = 10;
-		FeatureSet featureSet = new SymmetricMixedFeatures();
+		FeatureSet featureSet = FeatureSetBuilder.symmetricMixed().build();
 		Distribution initialDistribution =
-			new NormalDistribution(new MersenneTwister(), new double[featureSet.dimension(new Playfield(5, 10))], 10);
-		Tetris training = new Tetris(width, trainingHeight, new Random(), 50, featureSet);
+			new NormalDistribution(new MersenneTwister(), new double[featureSet.dimension(new Playfield(width, 10))], 10);
+		// Start on a low playfield to keep games short, and move towards the evaluation
+		// height as the games get longer. Fewer trials keep the iterations about as long.
+		TetrisCurriculum curriculum = new TetrisCurriculum(new Tetris(width, trainingHeight, new Random(), 50, featureSet))
+			.then(30, 1000, new Tetris(width, 16, new Random(), 20, featureSet))
+			.then(30, 5000, new Tetris(width, evaluationHeight, new Random(), 10, featureSet));
 		Tetris evaluation = new Tetris(width, evaluationHeight, new Random(), 100, featureSet);
 		int evaluationTrials = 100;
 
@@ -49,9 +66,20 @@ public final class Main {
 		solver.setElites(elitesSize);
 		solver.setInitialNoise(initialNoise);
 		solver.setNoiseStep(noiseStep);
-		solver.setProblem(training);
+		solver.setProblem(curriculum.first());
+		solver.setCurriculum(curriculum);
 		solver.setVerbosity(1);
 
+		if(args.length == 2 && args[0].equals("replay")) {
+			solver.shutdown();
+			replay(args[1], 800);
+			return;
+		}
+		if(args.length == 2 && args[0].equals("tournament")) {
+			solver.shutdown();
+			tournament(new Tetris(width, evaluationHeight, new Random(), 1, featureSet), args[1], threads);
+			return;
+		}
 		if(args.length > 0) {
 			if(args.length != evaluation.dimension() + 1) {
 				System.out.println("Unknown arguments.");
@@ -68,11 +96,20 @@ public final class Main {
 			}
 			if(args[0].equals("test")) {
 				solver.setProblem(evaluation);
-				solver.evaluateParameters(par, evaluationTrials);
+				EvaluationResult result = solver.evaluateParameters(par, evaluationTrials);
+				solver.shutdown();
+				System.out.println("Perf: " + result.mean);
 				return;
 			} else if(args[0].equals("show")) {
 				evaluation.runTrial(par, true);
 				return;
+			} else if(args[0].equals("record")) {
+				solver.shutdown();
+				TraceRecorder recorder = new TraceRecorder(width, evaluationHeight, 1000);
+				int lines = evaluation.runTrial(par, false, recorder);
+				writeTrace(recorder.toTrace(), "tetris.trace");
+				System.out.println(lines + " lines, " + recorder.moves() + " moves recorded to tetris.trace");
+				return;
 			} else {
 				System.out.println("Unknown arguments.");
 				return;
@@ -81,14 +118,83 @@ public final class Main {
 
 		// Run solver.
 		long startTime = System.nanoTime();
-		double[] opt = solver.solve(initialDistribution);
-		solver.shutdown();
+		SolverResult result = solver.solve(initialDistribution);
+		double[] opt = result.best;
 		System.out.println("Trained in " + (System.nanoTime() - startTime) / 1000000 / 1000.0 + " seconds.");
-		System.out.println("Perf on training problem: " +
-			(int)new Tetris(width, trainingHeight, new Random(), 1000, featureSet).fitness(opt));
+		System.out.println(result);
+		// Play the games one by one on the solver's threads, at the height the curriculum ended on.
+		solver.setProblem(new Tetris(width, curriculum.current().getHeight(), new Random(), 1, featureSet));
+		EvaluationResult check = solver.evaluateParameters(opt, 1000);
+		solver.shutdown();
+		System.out.println("Perf on training problem: " + (int)check.mean);
 		System.out.println("To test the fitness of these parameters, run \n" +
-			"java -cp \"./commons-math3-3.5.jar:.\" tetris.Main test " + parametersToString(opt));
+			"java -jar target/cemethod-1.0-SNAPSHOT.jar test " + parametersToString(opt));
 		System.out.println("To see a sample game, use \"show\" instead of \"test\"");
+		System.out.println("To record a game, use \"record\", then \"replay tetris.trace\" to watch it");
+		System.out.println("To rank saved parameters, one vector per line as below, use \"tournament <file>\"");
+		System.out.println(decimalsToString(opt));
+	}
+
+	private static void tournament(Tetris tetris, String file, int threads) throws InterruptedException {
+		Tournament t = new Tournament(tetris, threads);
+		try {
+			Reader in = new FileReader(file);
+			try {
+				t.load(in);
+			} finally {
+				in.close();
+			}
+		} catch(IOException e) {
+			System.out.println("Could not read " + file + ": " + e.getMessage());
+			return;
+		}
+		t.run();
+		System.out.print(t.report());
+	}
+
+	private static void writeTrace(GameTrace trace, String file) {
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				trace.write(out);
+			} finally {
+				out.close();
+			}
+		} catch(IOException e) {
+			System.out.println("Could not write " + file + ": " + e.getMessage());
+		}
+	}
+
+	private static void replay(String file, int millisPerMove) {
+		GameTrace trace;
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				trace = GameTrace.read(in);
+			} finally {
+				in.close();
+			}
+		} catch(IOException e) {
+			System.out.println("Could not read " + file + ": " + e.getMessage());
+			return;
+		}
+		TraceReplayer replayer = new TraceReplayer(trace,
+			new SwingPlayfield(trace.width, trace.height, millisPerMove));
+		replayer.fastForward(trace.moves);
+	}
+
+	/**
+	 * @return The parameters as decimal numbers, which Double.parseDouble() reads back exactly.
+	 */
+	private static String decimalsToString(double[] p) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < p.length; i++) {
+			sb.append(Double.toString(p[i]));
+			if(i + 1 < p.length) {
+				sb.append(' ');
+			}
+		}
+		return sb.toString();
 	}
 
 	private static String parametersToString(double[] p) {
@@ -0,0 +1,129 @@
+package cemethod.tetris;
+
+/**
+ * Every legal move, i.e. piece, orientation and column, on a playfield of
+ * a given width, stored in flat arrays so that moves can be tried without
+ * iterating over pieces or dereferencing OrientedPieces.
+ * The moves of piece number p are first(p), ..., end(p) - 1.
+ */
+class MoveTable {
+	/**
+	 * The number of entries per move in masks, below and tops.
+	 * At least the width of the widest piece.
+	 */
+	final int stride;
+	/**
+	 * The leftmost column of each move.
+	 */
+	final int[] col;
+	/**
+	 * The width of the piece of each move.
+	 */
+	final int[] width;
+	/**
+	 * The height of the piece of each move.
+	 */
+	final int[] height;
+	/**
+	 * The number of full squares of the piece of each move.
+	 */
+	final int[] nFull;
+	/**
+	 * Column w of the piece of move m is masks[m * stride + w].
+	 */
+	final long[] masks;
+	/**
+	 * The empty space below column w of the piece of move m is below[m * stride + w].
+	 */
+	final int[] below;
+	/**
+	 * The height of column w of the piece of move m is tops[m * stride + w].
+	 */
+	final int[] tops;
+	/**
+	 * The index of the piece of each move.
+	 */
+	final int[] piece;
+	/**
+	 * The oriented piece of each move.
+	 */
+	final OrientedPiece[] pieces;
+	/**
+	 * The moves of piece p are first[p], ..., first[p + 1] - 1.
+	 */
+	private final int[] first;
+
+	/**
+	 * @param set the pieces, numbered by their index.
+	 * @param boardWidth the width of the playfield.
+	 */
+	MoveTable(Piece[] set, int boardWidth) {
+		int n = 0;
+		int maxWidth = 0;
+		for(Piece p : set) {
+			for(OrientedPiece op : p) {
+				n += Math.max(boardWidth - op.width + 1, 0);
+				maxWidth = Math.max(maxWidth, op.width);
+			}
+		}
+		stride = maxWidth;
+		col = new int[n];
+		width = new int[n];
+		height = new int[n];
+		nFull = new int[n];
+		masks = new long[n * stride];
+		below = new int[n * stride];
+		tops = new int[n * stride];
+		piece = new int[n];
+		pieces = new OrientedPiece[n];
+		first = new int[set.length + 1];
+		int m = 0;
+		for(int p = 0; p < set.length; p++) {
+			first[p] = m;
+			for(OrientedPiece op : set[p]) {
+				for(int c = 0; c + op.width <= boardWidth; c++) {
+					col[m] = c;
+					width[m] = op.width;
+					height[m] = op.height;
+					nFull[m] = op.nFull;
+					for(int w = 0; w < op.width; w++) {
+						masks[m * stride + w] = op.columns[w];
+						below[m * stride + w] = op.heightBelow[w];
+						tops[m * stride + w] = op.heightOf[w];
+					}
+					piece[m] = p;
+					pieces[m] = op;
+					m++;
+				}
+			}
+		}
+		first[set.length] = m;
+	}
+
+	/**
+	 * @param piece the index of a piece.
+	 * @return The first move of the piece.
+	 */
+	int first(int piece) {
+		return first[piece];
+	}
+
+	/**
+	 * @param piece the index of a piece.
+	 * @return One more than the last move of the piece.
+	 */
+	int end(int piece) {
+		return first[piece + 1];
+	}
+
+	/**
+	 * @return The maximal number of moves of a single piece.
+	 */
+	int maxMoves() {
+		int ans = 0;
+		for(int p = 0; p + 1 < first.length; p++) {
+			ans = Math.max(ans, first[p + 1] - first[p]);
+		}
+		return ans;
+	}
+}
@@ -0,0 +1,94 @@
+package cemethod.tetris;
+
+import java.util.Random;
+
+import org.apache.commons.math3.random.MersenneTwister;
+
+import cemethod.AdaptiveNoise;
+import cemethod.CESolver;
+import cemethod.Function;
+import cemethod.LinearNoise;
+import cemethod.Main;
+import cemethod.NoiseSchedule;
+import cemethod.NormalDistribution;
+import cemethod.TargetWatch;
+
+/**
+ * Compares the linear noise schedule with AdaptiveNoise, by the number of
+ * iterations until the mean elite performance reaches a target, on Ackley's
+ * function and on Tetris. Each schedule is run from the same seeds.
+ * Give the number of runs per schedule as argument, 5 by default.
+ * A run that never reaches the target counts as the maximal number of
+ * iterations in the mean, which is then only a lower bound, and is
+ * listed with the mean elite performance it ended at.
+ */
+public final class NoiseComparison {
+	private NoiseComparison() {
+	}
+
+	/**
+	 * @param args the number of runs per schedule.
+	 * @throws InterruptedException if interrupted.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		Grid.setDebug(false);
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		int dim = 100;
+		System.out.println("Ackley, dimension " + dim + ", target -0.1:");
+		for(NoiseSchedule schedule : new NoiseSchedule[] {new LinearNoise(6, -0.1), new AdaptiveNoise(6)}) {
+			compare(schedule, new Main.Ackley(dim), -0.1, 200, 15, 200, 10, 30, threads, runs);
+		}
+
+		FeatureSet fs = FeatureSetBuilder.symmetricMixed().build();
+		Tetris tetris = new Tetris(10, 10, new Random(0), 5, fs);
+		System.out.println("Tetris 10x10, target 500 lines per game:");
+		for(NoiseSchedule schedule : new NoiseSchedule[] {new LinearNoise(8, -0.1), new AdaptiveNoise(8)}) {
+			compare(schedule, tetris, 500, 100, 10, 40, 0, 10, threads, runs);
+		}
+	}
+
+	private static void compare(NoiseSchedule schedule, Function f, double target, int samples,
+		int elites, int maxIterations, double initialRange, double initialVariance,
+		int threads, int runs) throws InterruptedException {
+		StringBuilder sb = new StringBuilder();
+		int reached = 0;
+		double sum = 0;
+		double sumReached = 0;
+		for(int run = 0; run < runs; run++) {
+			MersenneTwister r = new MersenneTwister(run);
+			double[] initialGuess = new double[f.dimension()];
+			for(int i = 0; i < initialGuess.length; i++) {
+				initialGuess[i] = initialRange - 2 * initialRange * r.nextDouble();
+			}
+			TargetWatch watch = TargetWatch.eliteMean(target);
+			CESolver solver = new CESolver(threads, r);
+			try {
+				solver.setProblem(f);
+				solver.setIterationListener(watch);
+				solver.setNoiseSchedule(schedule);
+				solver.setSamples(samples);
+				solver.setElites(elites);
+				solver.setMaxIterations(maxIterations);
+				solver.setMinVariance(0);
+				solver.solve(new NormalDistribution(r, initialGuess, initialVariance));
+			} finally {
+				solver.shutdown();
+			}
+			if(watch.reached()) {
+				reached++;
+				sum += watch.reachedIteration();
+				sumReached += watch.reachedIteration();
+				sb.append(' ').append(watch.reachedIteration());
+			} else {
+				sum += maxIterations;
+				sb.append(String.format(" -(%.3g)", watch.last().eliteMean));
+			}
+		}
+		System.out.printf("  %-14s reached %d/%d, mean iterations %s%.1f (%s over the runs that reached it),"
+			+ " per run:%s%n", schedule.getClass().getSimpleName(), reached, runs,
+			reached < runs ? ">= " : "", sum / runs,
+			reached > 0 ? String.format("%.1f", sumReached / reached) : "-", sb);
+	}
+}
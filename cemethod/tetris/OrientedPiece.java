@@ -26,7 +26,7 @@ public class OrientedPiece extends Grid {
 			for(int j = 0; j < a[0].length; j++) {
 				int x = transformx(i, j, width, rot);
 				int y = transformy(i, j, height, rot);
-				columns[x] |= a[i][j] ? 1 << y : 0;
+				columns[x] |= a[i][j] ? 1L << y : 0;
 			}
 		}
 		heightBelow = new int[width];
@@ -35,7 +35,7 @@ public class OrientedPiece extends Grid {
 			heightOf[c] = calculateHeight(c);
 		}
 		nFull = calcFull();
-		if(DEBUG) {
+		if(debug) {
 			checkInvariants();
 		}
 	}
@@ -45,7 +45,7 @@ public class OrientedPiece extends Grid {
 	 * @return The value that should be in heightBelow[column].
 	 */
 	private int spaceBelow(int column) {
-		int c = columns[column];
+		long c = columns[column];
 		int ans = 1;
 		while(c == c >> ans << ans) {
 			ans++;
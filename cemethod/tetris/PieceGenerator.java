@@ -0,0 +1,121 @@
+package cemethod.tetris;
+
+/**
+ * A cheap source of random pieces, meant to be used by a single thread.
+ * Each game gets its own seed, derived without synchronization either from
+ * a base seed and the identity of the game, or from the base seed, the
+ * stream of the generator and a game counter. Pieces are then drawn with SplitMix64.
+ * See http://xoshiro.di.unimi.it/splitmix64.c .
+ */
+class PieceGenerator {
+	/**
+	 * The increment of SplitMix64.
+	 */
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+	/**
+	 * The seed shared by all generators of a Tetris problem.
+	 */
+	private final long base;
+	/**
+	 * Distinguishes this generator from others with the same base. Less than 2^24.
+	 */
+	private final long stream;
+	/**
+	 * The number of games started.
+	 */
+	private long games;
+	/**
+	 * The state of SplitMix64.
+	 */
+	private long state;
+	/**
+	 * The number of pieces to choose from.
+	 */
+	private final int nPieces;
+	/**
+	 * Pieces drawn in advance, or null to draw them one at a time.
+	 */
+	private final byte[] buffer;
+	/**
+	 * The index of the next piece in buffer.
+	 */
+	private int pos;
+
+	/**
+	 * newGame() must be called before the first game.
+	 * @param base the seed shared by all generators.
+	 * @param stream distinguishes this generator from others with the same base.
+	 * @param nPieces the number of pieces to choose from.
+	 * @param bufferSize the number of pieces to draw at a time, 0 to draw them one at a time.
+	 */
+	PieceGenerator(long base, long stream, int nPieces, int bufferSize) {
+		this.base = base;
+		this.stream = stream;
+		this.nPieces = nPieces;
+		buffer = bufferSize > 0 ? new byte[bufferSize] : null;
+	}
+
+	/**
+	 * Seeds the generator for the next game. The pieces of the game
+	 * do not depend on whether a buffer is used.
+	 */
+	void newGame() {
+		// stream << 40 | games is different for every game, and mix is a bijection.
+		state = mix(base ^ mix(stream << 40 | games));
+		games++;
+		pos = buffer == null ? 0 : buffer.length;
+	}
+
+	/**
+	 * Seeds the generator for game number game, whose pieces depend only on
+	 * the base seed and game, and not on the stream or the games played before.
+	 * @param game the number of the game, less than 2^40.
+	 */
+	void newGame(long game) {
+		// The complement has the stream bits set, so it is not used by newGame()
+		// unless there are 2^24 streams.
+		state = mix(base ^ mix(~game));
+		pos = buffer == null ? 0 : buffer.length;
+	}
+
+	/**
+	 * Seeds the generator for the given trial of the given sample, whose pieces
+	 * depend only on the base seed, sample and trial.
+	 * @param sample the number of the sample, non-negative.
+	 * @param trial the index of the trial, non-negative.
+	 */
+	void newGame(long sample, int trial) {
+		// GAMMA is odd, so distinct pairs with trial < 2^31 and a sample
+		// difference below 2^32 give distinct keys.
+		state = mix(mix(base ^ mix(sample * GAMMA + trial)) + GAMMA);
+		pos = buffer == null ? 0 : buffer.length;
+	}
+
+	/**
+	 * @return The index of the next piece, between 0 and nPieces - 1.
+	 */
+	int nextPiece() {
+		if(buffer == null) {
+			return next();
+		}
+		if(pos == buffer.length) {
+			for(int i = 0; i < buffer.length; i++) {
+				buffer[i] = (byte)next();
+			}
+			pos = 0;
+		}
+		return buffer[pos++];
+	}
+
+	private int next() {
+		state += GAMMA;
+		// Maps the high 32 bits to 0, ..., nPieces - 1 without division.
+		return (int)((mix(state) >>> 32) * nPieces >>> 32);
+	}
+
+	private static long mix(long z) {
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+}
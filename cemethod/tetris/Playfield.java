@@ -10,15 +10,74 @@ public class Playfield extends Grid {
 	 */
 	private boolean terminated;
 
+	// The features below are kept up to date as pieces are placed and rows removed,
+	// so that extracting them does not require scanning the whole playfield.
+	/**
+	 * Number of transitions between full and empty squares within each column.
+	 */
+	private final int[] colTransOf;
+	/**
+	 * Number of transitions between column c - 1 and column c, in each row.
+	 * Entry 0 is always 0.
+	 */
+	private final int[] rowTransOf;
+	/**
+	 * The contribution of each column to wellsum(), see well().
+	 */
+	private final int[] wellOf;
+	/**
+	 * For each column, the number of holes below each full square, summed.
+	 */
+	private final int[] holeSumOf;
+	/**
+	 * Sum of colTransOf.
+	 */
+	private int colTransSum;
+	/**
+	 * Sum of rowTransOf.
+	 */
+	private int rowTransSum;
+	/**
+	 * Sum of wellOf.
+	 */
+	private int wellSum;
+	/**
+	 * Sum of holeSumOf.
+	 */
+	private int holeSumSum;
+	/**
+	 * Sum of heightOf.
+	 */
+	private int heightSum;
+	/**
+	 * Maximum of heightOf.
+	 */
+	private int maxHeight;
+	/**
+	 * Twice the height of the center of the last piece placed.
+	 */
+	private int landingHeight;
+	/**
+	 * The number of rows cleared by the last piece times the number of its squares in them.
+	 */
+	private int erodedCells;
+	/**
+	 * The full rows right after the last piece was placed, before they were removed.
+	 */
+	private long placedFullRows;
+
 	/**
 	 * @param width width of new playfield.
 	 * @param height height of new playfeld.
 	 */
 	public Playfield(int width, int height) {
 		super(width, height);
-		if(height > 30) { throw new IllegalArgumentException("Playfield does not support such big playfields."); }
 		terminated = false;
-		if(DEBUG) {
+		colTransOf = new int[width];
+		rowTransOf = new int[width];
+		wellOf = new int[width];
+		holeSumOf = new int[width];
+		if(debug) {
 			checkInvariants();
 		}
 	}
@@ -27,9 +86,45 @@ public class Playfield extends Grid {
 	 * @param pf playfield to copy into this playfield.
 	 */
 	public void setTo(Playfield pf) {
-		super.setTo(pf);
+		// Copy the cached features first, since super.setTo() checks the invariants.
 		terminated = pf.terminated;
-		if(DEBUG) {
+		for(int c = 0; c < width; c++) {
+			colTransOf[c] = pf.colTransOf[c];
+			rowTransOf[c] = pf.rowTransOf[c];
+			wellOf[c] = pf.wellOf[c];
+			holeSumOf[c] = pf.holeSumOf[c];
+		}
+		colTransSum = pf.colTransSum;
+		rowTransSum = pf.rowTransSum;
+		wellSum = pf.wellSum;
+		holeSumSum = pf.holeSumSum;
+		heightSum = pf.heightSum;
+		maxHeight = pf.maxHeight;
+		landingHeight = pf.landingHeight;
+		erodedCells = pf.erodedCells;
+		super.setTo(pf);
+	}
+
+	/**
+	 * Makes this playfield hold the given columns, e.g. from a snapshot.
+	 * The game is considered not to have ended.
+	 * @param cols bit i of cols[offset + c] is set if square i of column c is full.
+	 * @param offset the index of the first column in cols.
+	 */
+	void setColumns(long[] cols, int offset) {
+		terminated = false;
+		nFull = 0;
+		heightSum = 0;
+		maxHeight = 0;
+		for(int c = 0; c < width; c++) {
+			columns[c] = cols[offset + c];
+			heightOf[c] = calculateHeight(c);
+			nFull += Long.bitCount(columns[c]);
+			heightSum += heightOf[c];
+			maxHeight = max(maxHeight, heightOf[c]);
+		}
+		updateColumns(0, width);
+		if(debug) {
 			checkInvariants();
 		}
 	}
@@ -49,75 +144,233 @@ public class Playfield extends Grid {
 	 */
 	public int place(OrientedPiece p, int col) {
 		int maxHeight = placeWithoutClearing(p, col);
-		int r = removeFull();
+		int r = removeFull(placedFullRows);
 		if(maxHeight - r > height) {
 			terminated = true;
 		}
-		if(DEBUG) {
+		if(debug) {
 			checkInvariants();
 		}
 		return r;
 	}
 
 	/**
-	 * Places p with its leftmost column at col.
+	 * Makes move m of t, like place(t.pieces[m], t.col[m]), recording in u
+	 * what is needed to revert the placement with undo(u).
+	 * This is cheaper than copying the playfield before every placement,
+	 * and reads the piece only from the flat arrays of t.
+	 * @param t The moves for a playfield of this width.
+	 * @param m The move to make.
+	 * @param u Where to store the undo information.
+	 * @return The number of rows cleared.
 	 */
-	protected int placeWithoutClearing(OrientedPiece p, int col) {
-		if(col + p.width > width || col < 0) { throw new IllegalArgumentException("Piece placed outside of playfield!"); }
-		int placementHeight = 0;
-		for(int w = 0; w < p.width; w++) {
-			placementHeight = max(placementHeight, heightOf[col + w] - p.heightBelow[w]);
+	int place(MoveTable t, int m, Undo u) {
+		int col = t.col[m];
+		int pw = t.width[m];
+		if(u.previousHeights.length < pw) {
+			u.previousHeights = new int[pw];
+		}
+		u.moves = t;
+		u.move = m;
+		u.heightSum = heightSum;
+		u.maxHeight = maxHeight;
+		u.terminated = terminated;
+		u.landingHeight = landingHeight;
+		u.erodedCells = erodedCells;
+		for(int w = 0; w < pw; w++) {
+			u.previousHeights[w] = heightOf[col + w];
 		}
-		for(int w = 0; w < p.width; w++) {
-			heightOf[col + w] = placementHeight + p.heightOf[w];
-			columns[col + w] |= p.columns[w] << placementHeight;
+		int maxHeight = drop(t.masks, t.below, t.tops, m * t.stride, pw, t.height[m], t.nFull[m], col);
+		u.placementHeight = maxHeight - t.height[m];
+		u.clearedRows = placedFullRows;
+		int r = removeFull(placedFullRows);
+		if(maxHeight - r > height) {
+			terminated = true;
+		}
+		if(debug) {
+			checkInvariants();
 		}
-		nFull += p.nFull;
-		return placementHeight + p.height;
+		return r;
 	}
 
 	/**
-	 * Removes all full rows.
-	 * @return The number of rows removed.
+	 * Reverts the placement recorded in u, which must be the last change
+	 * made to this playfield.
+	 * @param u The undo information given to place(MoveTable, int, Undo).
 	 */
-	protected int removeFull() {
-		int ans = 0;
-		int fullRows = ~0;
-		for(int c : columns) {
-			fullRows &= c;
+	void undo(Undo u) {
+		MoveTable t = u.moves;
+		int m = u.move;
+		int col = t.col[m];
+		int pw = t.width[m];
+		int offset = m * t.stride;
+		if(u.clearedRows != 0) {
+			for(int c = 0; c < width; c++) {
+				columns[c] = insertFullRows(columns[c], u.clearedRows);
+			}
+			nFull += width * Long.bitCount(u.clearedRows);
+		}
+		for(int w = 0; w < pw; w++) {
+			columns[col + w] &= ~(t.masks[offset + w] << u.placementHeight);
 		}
-		int index = 0;
-		while(fullRows > 0) {
-			if((fullRows & 1) == 1) {
-				removeRow(index);
-				ans++;
-			} else {
-				index++;
+		nFull -= t.nFull[m];
+		heightSum = u.heightSum;
+		maxHeight = u.maxHeight;
+		terminated = u.terminated;
+		landingHeight = u.landingHeight;
+		erodedCells = u.erodedCells;
+		if(u.clearedRows != 0) {
+			for(int c = 0; c < width; c++) {
+				heightOf[c] = calculateHeight(c);
 			}
-			fullRows >>= 1;
+			updateColumns(0, width);
+		} else {
+			for(int w = 0; w < pw; w++) {
+				heightOf[col + w] = u.previousHeights[w];
+			}
+			updateColumns(col, col + pw);
 		}
-		if(DEBUG) {
+		if(debug) {
 			checkInvariants();
 		}
-		return ans;
 	}
 
-	private void removeRow(int i) {
-		if(DEBUG) {
-			for(int c = 0; c < width; c++) {
-				if(!isSquareFull(i, c)) { throw new RuntimeException("Faulty call to removeRow()."); }
+	/**
+	 * @param x a column.
+	 * @param rows bit i is set if a full square is to be inserted at row i.
+	 * @return x, with the squares above each inserted square moved up one row.
+	 */
+	private static long insertFullRows(long x, long rows) {
+		// Insert from the bottom, so that the remaining positions stay valid.
+		for(long m = rows; m != 0; m &= m - 1) {
+			long row = m & -m;
+			long lowermask = row - 1;
+			x = (x & ~lowermask) << 1 | x & lowermask | row;
+		}
+		return x;
+	}
+
+	/**
+	 * Places p with its leftmost column at col.
+	 */
+	protected int placeWithoutClearing(OrientedPiece p, int col) {
+		return drop(p.columns, p.heightBelow, p.heightOf, 0, p.width, p.height, p.nFull, col);
+	}
+
+	/**
+	 * Places a piece given by its columns masks[offset], ..., masks[offset + pw - 1],
+	 * the empty space below and the height of each column, with its leftmost column at col.
+	 * Also finds the rows the piece fills, and its landing height and eroded cells.
+	 * @return The height of the top of the piece.
+	 */
+	private int drop(long[] masks, int[] below, int[] tops, int offset, int pw, int ph, int pFull, int col) {
+		if(col + pw > width || col < 0) { throw new IllegalArgumentException("Piece placed outside of playfield!"); }
+		int placementHeight = 0;
+		for(int w = 0; w < pw; w++) {
+			placementHeight = max(placementHeight, heightOf[col + w] - below[offset + w]);
+		}
+		for(int w = 0; w < pw; w++) {
+			int h = placementHeight + tops[offset + w];
+			heightSum += h - heightOf[col + w];
+			maxHeight = max(maxHeight, h);
+			heightOf[col + w] = h;
+			columns[col + w] |= masks[offset + w] << placementHeight;
+		}
+		nFull += pFull;
+		updateColumns(col, col + pw);
+		landingHeight = 2 * placementHeight + ph;
+		placedFullRows = fullRows();
+		erodedCells = 0;
+		if(placedFullRows != 0) {
+			for(int w = 0; w < pw; w++) {
+				erodedCells += Long.bitCount(masks[offset + w] << placementHeight & placedFullRows);
 			}
+			erodedCells *= Long.bitCount(placedFullRows);
 		}
-		int lowermask = (1 << i) - 1;
-		int highermask = ~((1 << i + 1) - 1);
+		return placementHeight + ph;
+	}
+
+	/**
+	 * Updates the cached features after columns from, ..., to - 1 have changed.
+	 * heightSum and maxHeight must already be up to date.
+	 */
+	private void updateColumns(int from, int to) {
+		for(int c = from; c < to; c++) {
+			int x = colTrans(columns[c]);
+			colTransSum += x - colTransOf[c];
+			colTransOf[c] = x;
+			x = holeSum(columns[c]);
+			holeSumSum += x - holeSumOf[c];
+			holeSumOf[c] = x;
+		}
+		for(int c = max(from, 1); c <= to && c < width; c++) {
+			int x = Long.bitCount(columns[c] ^ columns[c - 1]);
+			rowTransSum += x - rowTransOf[c];
+			rowTransOf[c] = x;
+		}
+		for(int c = max(from - 1, 0); c <= to && c < width; c++) {
+			int x = well(c);
+			wellSum += x - wellOf[c];
+			wellOf[c] = x;
+		}
+	}
+
+	/**
+	 * Removes all full rows.
+	 * @return The number of rows removed.
+	 */
+	protected int removeFull() {
+		return removeFull(fullRows());
+	}
+
+	/**
+	 * Removes the given rows, which must be full.
+	 * @param fullRows bit i is set if row i is to be removed.
+	 * @return The number of rows removed.
+	 */
+	private int removeFull(long fullRows) {
+		if(fullRows == 0) { return 0; }
+		heightSum = 0;
+		maxHeight = 0;
 		for(int c = 0; c < width; c++) {
-			columns[c] = (columns[c] & highermask) >> 1 | columns[c] & lowermask;
+			columns[c] = removeRows(columns[c], fullRows);
 			heightOf[c] = calculateHeight(c);
+			heightSum += heightOf[c];
+			maxHeight = max(maxHeight, heightOf[c]);
 		}
-		nFull -= width;
-		if(DEBUG) {
+		int ans = Long.bitCount(fullRows);
+		nFull -= width * ans;
+		updateColumns(0, width);
+		if(debug) {
 			checkInvariants();
 		}
+		return ans;
+	}
+
+	/**
+	 * Equivalent to Long.compress(x, ~rows), which is not available before Java 19.
+	 * @param x a column.
+	 * @param rows bit i is set if row i is to be removed.
+	 * @return x, with the squares above each removed row moved down.
+	 */
+	private static long removeRows(long x, long rows) {
+		// Remove from the top, so that the remaining positions stay valid.
+		for(long m = rows; m != 0; m ^= Long.highestOneBit(m)) {
+			long lowermask = Long.highestOneBit(m) - 1;
+			x = x >>> 1 & ~lowermask | x & lowermask;
+		}
+		return x;
+	}
+
+	/**
+	 * @return A long where bit i is set if row i is full.
+	 */
+	private long fullRows() {
+		long fullRows = ~0L;
+		for(long c : columns) {
+			fullRows &= c;
+		}
+		return fullRows;
 	}
 
 	// None of the methods below mutate the playfield.
@@ -126,7 +379,136 @@ public class Playfield extends Grid {
 		return a < b ? a : b;
 	}
 
+	/**
+	 * @param c the column to consider.
+	 * @return The contribution of column c to wellsum().
+	 */
+	private int well(int c) {
+		int m;
+		if(c == 0) {
+			m = heightOf[1] - heightOf[0];
+		} else if(c == width - 1) {
+			// Note that this is not symmetric to the case c == 0.
+			m = heightOf[width - 1] - heightOf[width - 2];
+		} else {
+			m = min(heightOf[c - 1], heightOf[c + 1]) - heightOf[c];
+		}
+		return m > 1 ? m : 0;
+	}
+
+	/**
+	 * @param x a column.
+	 * @return The number of transitions between full and empty squares in x.
+	 */
+	private static int colTrans(long x) {
+		// x & ~x << 1 is 1 exactly where a 1 changes to a 0.
+		// ~x & x << 1 is 1 exactly where a 0 changes to a 1.
+		return Long.bitCount(x & ~x << 1 | ~x & x << 1);
+	}
+
+	/**
+	 * @param x a column.
+	 * @return The number of holes below each full square of x, summed.
+	 */
+	private static int holeSum(long x) {
+		int ans = 0;
+		// The k:th full square, at row p, has p - k empty squares below it.
+		for(int k = 0; x != 0; k++) {
+			ans += Long.numberOfTrailingZeros(x) - k;
+			x &= x - 1;
+		}
+		return ans;
+	}
+
 	int wellsum() {
+		return wellSum;
+	}
+
+	int coltrans() {
+		return colTransSum;
+	}
+
+	int rowtrans() {
+		return rowTransSum;
+	}
+
+	int holeSums() {
+		return holeSumSum;
+	}
+
+	/**
+	 * @return The number of empty squares with a full square somewhere above it.
+	 */
+	int holes() {
+		return heightSum - nFull;
+	}
+
+	/**
+	 * @return The sum of the heights of all columns.
+	 */
+	int heightSum() {
+		return heightSum;
+	}
+
+	/**
+	 * @return The height of the highest column.
+	 */
+	int maxHeight() {
+		return maxHeight;
+	}
+
+	/**
+	 * @return Twice the height of the center of the last piece placed,
+	 * i.e. twice the row of its bottom plus its height.
+	 */
+	int landingHeight() {
+		return landingHeight;
+	}
+
+	/**
+	 * @return The number of rows cleared by the last piece placed,
+	 * times the number of squares of the piece in those rows.
+	 */
+	int erodedCells() {
+		return erodedCells;
+	}
+
+	/**
+	 * @return The number of rows with at least one hole.
+	 */
+	int rowsWithHoles() {
+		long rows = 0;
+		for(int c = 0; c < width; c++) {
+			rows |= ~columns[c] & (1L << heightOf[c]) - 1;
+		}
+		return Long.bitCount(rows);
+	}
+
+	/**
+	 * A well square is an empty square above the top of its column, whose
+	 * neighbours, or the walls, are full. Each well square counts the well
+	 * squares from it up to the top of its well, so a well of depth d
+	 * counts 1 + 2 + ... + d.
+	 * @return The sum over all well squares.
+	 */
+	int cumulativeWells() {
+		int ans = 0;
+		long left = ~0L;
+		for(int c = 0; c < width; c++) {
+			long right = c + 1 < width ? columns[c + 1] : ~0L;
+			long well = ~columns[c] & left & right & -(1L << heightOf[c]);
+			// After k steps, a has the squares with k well squares right above them.
+			for(long a = well; a != 0; a &= a >>> 1) {
+				ans += Long.bitCount(a);
+			}
+			left = columns[c];
+		}
+		return ans;
+	}
+
+	// The methods below calculate the cached features from scratch, only for debugging.
+
+	private int calcWellsum() {
 		int ans = 0;
 		int m = heightOf[1] - heightOf[0];
 		ans += m > 1 ? m : 0;
@@ -139,35 +521,33 @@ public class Playfield extends Grid {
 		return ans;
 	}
 
-	int coltrans() {
+	private int calcColtrans() {
 		int ans = 0;
-		for(int x : columns) {
-			// x & ~x << 1 is 1 exactly where a 1 changes to a 0.
-			// ~x & x << 1 is 1 exactly where a 0 changes to a 1.
-			ans += Integer.bitCount(x & ~x << 1 | ~x & x << 1);
+		for(long x : columns) {
+			ans += Long.bitCount(x & ~x << 1 | ~x & x << 1);
 		}
 		return ans;
 	}
 
-	int rowtrans() {
+	private int calcRowtrans() {
 		int ans = 0;
 		for(int c = 1; c < width; c++) {
-			ans += Integer.bitCount(columns[c] ^ columns[c - 1]);
+			ans += Long.bitCount(columns[c] ^ columns[c - 1]);
 		}
 		return ans;
 	}
 
-	int holeSums() {
+	private int calcHoleSums() {
 		int ans = 0;
-		for(int c : columns) {
+		for(long c : columns) {
 			int nHoles = 0;
-			while(c > 0) {
+			while(c != 0) {
 				if((c & 1) == 1) {
 					ans += nHoles;
 				} else {
 					nHoles++;
 				}
-				c >>= 1;
+				c >>>= 1;
 			}
 		}
 		return ans;
@@ -177,5 +557,16 @@ public class Playfield extends Grid {
 	public void checkInvariants() {
 		if(terminated) { return; }
 		super.checkInvariants();
+		int sum = 0;
+		int maxh = 0;
+		for(int h : heightOf) {
+			sum += h;
+			maxh = max(maxh, h);
+		}
+		if(sum != heightSum || maxh != maxHeight) { throw new RuntimeException(); }
+		if(calcWellsum() != wellSum) { throw new RuntimeException(); }
+		if(calcColtrans() != colTransSum) { throw new RuntimeException(); }
+		if(calcRowtrans() != rowTransSum) { throw new RuntimeException(); }
+		if(calcHoleSums() != holeSumSum) { throw new RuntimeException(); }
 	}
 }
@@ -18,17 +18,24 @@ public class SymmetricBertsekasFeatures implements FeatureSet {
 	 */
 	@Override
 	public void extract(Playfield pf, int[] output) {
-		int maxh = 0;
-		int h;
-		int h2;
-		output[pf.width] = -pf.nFull;
 		for(int w = 0; w < pf.width / 2; w++) {
-			h = pf.heightOf[w];
-			h2 = pf.heightOf[pf.width - w - 1];
-			output[w] = h + h2;
-			maxh = maxh > h ? maxh : h;
-			maxh = maxh > h2 ? maxh : h2;
-			output[pf.width] += h + h2;
+			output[w] = pf.heightOf[w] + pf.heightOf[pf.width - w - 1];
+		}
+		if(pf.width % 2 == 0) {
+			output[pf.width] = pf.holes();
+			output[pf.width + 1] = pf.maxHeight();
+		} else {
+			// The middle column of an odd width is left out of the holes and the
+			// maximal height, so they cannot be read from the cache.
+			int mid = pf.heightOf[pf.width / 2];
+			int maxh = 0;
+			for(int w = 0; w < pf.width; w++) {
+				if(w != pf.width / 2) {
+					maxh = maxh > pf.heightOf[w] ? maxh : pf.heightOf[w];
+				}
+			}
+			output[pf.width] = pf.holes() - mid;
+			output[pf.width + 1] = maxh;
 		}
 		for(int w = 0; w < pf.width / 2 - 1; w++) {
 			output[pf.width / 2 + w] =
@@ -36,7 +43,6 @@ public class SymmetricBertsekasFeatures implements FeatureSet {
 					abs(pf.heightOf[pf.width - w - 1] - pf.heightOf[pf.width - w - 2]);
 		}
 		output[pf.width - 1] = abs(pf.heightOf[pf.width / 2] - pf.heightOf[pf.width / 2 - 1]);
-		output[pf.width + 1] = maxh;
 	}
 
 	private static int abs(int x) {
@@ -1,15 +1,68 @@
 package cemethod.tetris;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.math3.random.MersenneTwister;
-import org.apache.commons.math3.random.RandomGenerator;
+import cemethod.TrialResult;
 
 /**
  * A specification of the Tetris problem. Capable of estimating the fitness
  * of AI parameters and simulating games.
  */
-public class Tetris implements cemethod.Function {
+public class Tetris implements cemethod.ContextTrialFunction<Tetris.Scratch> {
+	/**
+	 * The memory a thread uses to play games, see newContext().
+	 */
+	public static final class Scratch {
+		/**
+		 * The playfield of the game.
+		 */
+		private final Playfield board;
+		/**
+		 * An empty playfield, to reset board from.
+		 */
+		private final Playfield empty;
+		/**
+		 * The features of a candidate.
+		 */
+		private final int[] mem;
+		private final Undo undo = new Undo();
+		private final CandidateBatch batch;
+		/**
+		 * The pieces of the games.
+		 */
+		private final PieceGenerator generator;
+		/**
+		 * The afterstate cache, or null if caching is disabled.
+		 */
+		private final AfterstateCache cache;
+		/**
+		 * The afterstates of the candidates, if cache is not null.
+		 */
+		private final long[] states;
+
+		private Scratch(Tetris t) {
+			board = new Playfield(t.w, t.h);
+			empty = new Playfield(t.w, t.h);
+			mem = new int[t.dimension];
+			batch = new CandidateBatch(t.moves.maxMoves(), mem.length);
+			generator = new PieceGenerator(t.seed, t.streams.getAndIncrement(), t.pieces.length,
+				t.pieceBufferSize);
+			cache = t.newCache();
+			states = cache != null ? new long[t.moves.maxMoves() * t.w] : null;
+		}
+
+		/**
+		 * @return The playfield, emptied for a new game.
+		 */
+		private Playfield newBoard() {
+			board.setTo(empty);
+			return board;
+		}
+	}
+
 	/**
 	 * height of tetris playfield.
 	 */
@@ -19,9 +72,29 @@ public class Tetris implements cemethod.Function {
 	 */
 	private final int w;
 	/**
-	 * Source of randomness for seed to RNG when running a trial.
+	 * The pieces of the game.
+	 */
+	private final Piece[] pieces;
+	/**
+	 * All moves on a playfield of width w.
 	 */
-	private final Random r;
+	private final MoveTable moves;
+	/**
+	 * Seed from which the pieces of every game are derived.
+	 */
+	private final long seed;
+	/**
+	 * The number of piece generators created, each of which draws from its own stream.
+	 */
+	private final AtomicInteger streams = new AtomicInteger();
+	/**
+	 * The context of each thread evaluating without one of its own.
+	 */
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>();
+	/**
+	 * The number of pieces to draw at a time, 0 to draw them one at a time.
+	 */
+	private int pieceBufferSize;
 	/**
 	 * Number of games per evaluation.
 	 */
@@ -30,20 +103,69 @@ public class Tetris implements cemethod.Function {
 	 * The FeatureSet to use when evaluating states.
 	 */
 	private final FeatureSet fs;
+	/**
+	 * The number of features, see dimension().
+	 */
+	private final int dimension;
+	/**
+	 * Maximal number of pieces per game during evaluation, 0 for no limit.
+	 */
+	private int maxPieces;
+	/**
+	 * The number of afterstates to cache per thread, 0 for no caching.
+	 */
+	private int cacheSize;
+	/**
+	 * The cache hits of all finished games, summed.
+	 */
+	private final AtomicLong cacheHits = new AtomicLong();
+	/**
+	 * The cache misses of all finished games, summed.
+	 */
+	private final AtomicLong cacheMisses = new AtomicLong();
 
 	/**
 	 * @param w width of tetris playfield.
 	 * @param h height of tetris playfield.
-	 * @param r source of randomness for piece generation.
+	 * @param r source of the seed for piece generation.
 	 * @param trials number of trials to average over for each evaluation. 
 	 * @param fs the feature set to use when evaluating.
 	 */
 	public Tetris(int w, int h, Random r, int trials, FeatureSet fs) {
-		this.r = r;
+		this(w, h, r, trials, fs, Piece.PIECES);
+	}
+
+	/**
+	 * @param w width of tetris playfield.
+	 * @param h height of tetris playfield.
+	 * @param r source of the seed for piece generation.
+	 * @param trials number of trials to average over for each evaluation.
+	 * @param fs the feature set to use when evaluating.
+	 * @param pieces the pieces to play with, e.g. Piece.SMALLPIECES.
+	 */
+	public Tetris(int w, int h, Random r, int trials, FeatureSet fs, Piece[] pieces) {
+		seed = r.nextLong();
 		this.w = w;
 		this.h = h;
 		this.trials = trials;
 		this.fs = fs;
+		this.pieces = pieces.clone();
+		moves = new MoveTable(this.pieces, w);
+		dimension = fs.dimension(new Playfield(w, h));
+	}
+
+	/**
+	 * @return The width of the playfield.
+	 */
+	public int getWidth() {
+		return w;
+	}
+
+	/**
+	 * @return The height of the playfield.
+	 */
+	public int getHeight() {
+		return h;
 	}
 
 	/* (non-Javadoc)
@@ -51,7 +173,18 @@ public class Tetris implements cemethod.Function {
 	 */
 	@Override
 	public int dimension() {
-		return fs.dimension(new Playfield(w, h));
+		return dimension;
+	}
+
+	/**
+	 * A context holds the playfield, the scratch memory, the piece generator
+	 * and the afterstate cache of a thread, so that games played with it do
+	 * not allocate. Evaluating without a context uses one per thread.
+	 * @see cemethod.ContextFunction#newContext()
+	 */
+	@Override
+	public Scratch newContext() {
+		return new Scratch(this);
 	}
 
 	/* (non-Javadoc)
@@ -59,17 +192,185 @@ public class Tetris implements cemethod.Function {
 	 */
 	@Override
 	public double fitness(double[] v) {
-		double perf = 0;
-		for(int i = 0; i < trials; i++) {
-			perf += runTrial(v, false);
+		return fitness(v, scratch());
+	}
+
+	/* (non-Javadoc)
+	 * @see cemethod.TrialFunction#trials()
+	 */
+	@Override
+	public int trials() {
+		return trials;
+	}
+
+	/**
+	 * Plays a game, stopping after the maximal number of pieces. The pieces
+	 * depend only on the seed, sample and trial, so the result does not depend
+	 * on which thread plays the game. Without a sample, the thread's next game is played.
+	 * @return The number of lines cleared, censored if the game was stopped
+	 * at the piece limit.
+	 * @see cemethod.ContextTrialFunction#censoredTrial(double[], long, int, Object)
+	 */
+	@Override
+	public TrialResult censoredTrial(double[] v, long sample, int trial, Scratch s) {
+		Playfield b = s.newBoard();
+		if(sample < 0) {
+			s.generator.newGame();
+		} else {
+			s.generator.newGame(sample, trial);
 		}
-		perf /= trials;
-		return perf;
+		int lines = play(v, b, maxPieces, null, s);
+		return new TrialResult(lines, !b.isTerminal());
+	}
+
+	/**
+	 * Plays a game, stopping after the maximal number of pieces.
+	 * @return The number of lines cleared.
+	 * @see cemethod.ContextTrialFunction#trial(double[], int, Object)
+	 */
+	@Override
+	public double trial(double[] v, int trial, Scratch s) {
+		return censoredTrial(v, -1, trial, s).value;
+	}
+
+	/* (non-Javadoc)
+	 * @see cemethod.TrialFunction#censoredTrial(double[], long, int)
+	 */
+	@Override
+	public TrialResult censoredTrial(double[] v, long sample, int trial) {
+		return censoredTrial(v, sample, trial, scratch());
 	}
 
-	private static Piece getRandomPiece(RandomGenerator rng) {
-		int n = rng.nextInt(Piece.PIECES.length);
-		return Piece.PIECES[n];
+	/* (non-Javadoc)
+	 * @see cemethod.TrialFunction#trial(double[], int)
+	 */
+	@Override
+	public double trial(double[] v, int trial) {
+		return trial(v, trial, scratch());
+	}
+
+	/**
+	 * Estimates the expected number of lines per game. Games stopped at the
+	 * piece limit are treated as right-censored: if game over happens with a
+	 * constant probability per piece, and lines are cleared at a constant rate
+	 * per piece, the maximum likelihood estimate of lines per game is
+	 * (lines per piece) / (game overs per piece) = (lines) / (game overs).
+	 * Without a piece limit, this is the mean number of lines. If no game
+	 * ended, one game over is assumed, so the estimate is the total number
+	 * of lines, a lower bound as good as that of a single finished game.
+	 * @see cemethod.TrialFunction#combine(double[], boolean[])
+	 */
+	@Override
+	public double combine(double[] results, boolean[] censored) {
+		double lines = 0;
+		int ended = 0;
+		for(int i = 0; i < results.length; i++) {
+			lines += results[i];
+			if(!censored[i]) {
+				ended++;
+			}
+		}
+		return lines / Math.max(ended, 1);
+	}
+
+	/**
+	 * @return True, since the pieces of a trial of a sample depend only on the seed, sample and trial.
+	 * @see cemethod.TrialFunction#repeatableTrials()
+	 */
+	@Override
+	public boolean repeatableTrials() {
+		return true;
+	}
+
+	/**
+	 * Limits the length of games when evaluating fitness, which bounds the
+	 * cost of evaluating good parameters. Games reaching the limit are
+	 * accounted for by combine(). Does not affect runTrial().
+	 * @param maxPieces the maximal number of pieces per game, 0 for no limit.
+	 */
+	public void setMaxPieces(int maxPieces) {
+		this.maxPieces = maxPieces;
+	}
+
+	/**
+	 * @return The maximal number of pieces per game, 0 for no limit.
+	 */
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	/**
+	 * Enables caching of afterstate scores. Useful for small playfields,
+	 * and for good parameters which keep the stack low, since then
+	 * the same afterstates recur often. Each thread has its own cache.
+	 * Has no effect if the features depend on the last move, see
+	 * FeatureSet.dependsOnLastMove(). Should be called before the first evaluation.
+	 * @param size the number of afterstates to cache per thread, 0 for no caching.
+	 */
+	public void setAfterstateCacheSize(int size) {
+		cacheSize = size;
+	}
+
+	/**
+	 * @return The number of afterstate scores found in the cache in finished games,
+	 * summed over all threads.
+	 */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * @return The number of afterstate scores not found in the cache in finished games,
+	 * summed over all threads.
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	/**
+	 * @return A new cache for a context, or null if caching is disabled.
+	 */
+	private AfterstateCache newCache() {
+		if(cacheSize == 0 || fs.dependsOnLastMove()) { return null; }
+		return new AfterstateCache(w, cacheSize);
+	}
+
+	/**
+	 * Drawing many pieces at a time is faster for long games,
+	 * and does not change which pieces are drawn.
+	 * Should be called before the first evaluation.
+	 * @param size the number of pieces to draw at a time, 0 to draw them one at a time.
+	 */
+	public void setPieceBufferSize(int size) {
+		pieceBufferSize = size;
+	}
+
+	/**
+	 * @return The context of the current thread.
+	 */
+	private Scratch scratch() {
+		Scratch s = scratch.get();
+		if(s == null) {
+			s = newContext();
+			scratch.set(s);
+		}
+		return s;
+	}
+
+	/**
+	 * Plays game number game, whose pieces depend only on the seed of this
+	 * problem and on game, so that different parameters can be compared on
+	 * exactly the same games. The game stops at the piece limit, if any.
+	 * @param param The AI weights to use.
+	 * @param game the number of the game, less than 2^40.
+	 * @return The number of lines cleared, censored if the game was stopped at the piece limit.
+	 */
+	public TrialResult playGame(double[] param, long game) {
+		Scratch s = scratch();
+		s.generator.newGame(game);
+		Playfield b = s.newBoard();
+		int lines = play(param, b, maxPieces, null, s);
+		return new TrialResult(lines, !b.isTerminal());
 	}
 
 	/**
@@ -79,50 +380,114 @@ public class Tetris implements cemethod.Function {
 	 * @return The number of lines cleared.
 	 */
 	public int runTrial(double[] param, boolean display) {
+		return runTrial(param, display, null);
+	}
+
+	/**
+	 * Simulates a game like runTrial(param, display), recording its moves.
+	 * @param param The AI weights to use.
+	 * @param display If true, the game is displayed using Swing.
+	 * @param recorder records the moves of the game, or null to not record.
+	 * @return The number of lines cleared.
+	 */
+	public int runTrial(double[] param, boolean display, TraceRecorder recorder) {
+		if(recorder != null && (recorder.getWidth() != w || recorder.getHeight() != h)) {
+			throw new IllegalArgumentException("Recorder does not match the playfield.");
+		}
+		if(recorder != null && !Arrays.equals(pieces, Piece.PIECES)) {
+			throw new IllegalArgumentException("Only games with the standard pieces can be recorded.");
+		}
+		Scratch s = scratch();
 		Playfield b;
 		if(display) {
 			b = new SwingPlayfield(w, h, 800);
 		} else {
-			b = new Playfield(w, h);
+			b = s.newBoard();
 		}
+		s.generator.newGame();
+		return play(param, b, 0, recorder, s);
+	}
 
-		// Scratch memory:
-		int[] mem = new int[dimension()];
-		Playfield tmp = new Playfield(w, h);
-		RandomGenerator rng = new MersenneTwister(r.nextLong());
-
+	/**
+	 * Plays a game on b until it ends or maxPieces pieces have been placed.
+	 * @param param The AI weights to use.
+	 * @param b an empty playfield.
+	 * @param maxPieces the maximal number of pieces, 0 for no limit.
+	 * @param recorder records the moves, or null to not record.
+	 * @param s the scratch memory, with its generator seeded for the game.
+	 * @return The number of lines cleared.
+	 */
+	private int play(double[] param, Playfield b, int maxPieces, TraceRecorder recorder, Scratch s) {
+		if(param.length != dimension) {
+			throw new IllegalArgumentException("Expected " + dimension + " weights, got " + param.length + ".");
+		}
+		PieceGenerator rng = s.generator;
+		int[] mem = s.mem;
+		Undo undo = s.undo;
+		CandidateBatch batch = s.batch;
+		AfterstateCache c = s.cache;
+		long[] states = s.states;
+		long hits = 0;
+		long misses = 0;
+		if(c != null) {
+			c.setParameters(param);
+			hits = c.getHits();
+			misses = c.getMisses();
+		}
 		int lines = 0;
-		// This loop does not allocate anything except for the iterator.
-		while(!b.isTerminal()) {
-			Piece current = getRandomPiece(rng);
-			OrientedPiece bestPiece = null;
-			int bestCol = 0;
-			double bestVal = 0;
+		// This loop does not allocate anything.
+		for(int pieces = 0; !b.isTerminal() && (maxPieces == 0 || pieces < maxPieces); pieces++) {
+			int current = rng.nextPiece();
+			batch.clear();
 			// Try all possible orientations and columns for the piece:
-			for(OrientedPiece op : current) {
-				for(int c = 0; c + op.width <= b.width; c++) {
-					tmp.setTo(b);
-					tmp.place(op, c);
-					double val = eval(tmp, param, mem);
-					if(val > bestVal || bestPiece == null) {
-						bestVal = val;
-						bestPiece = op;
-						bestCol = c;
+			for(int m = moves.first(current), end = moves.end(current); m < end; m++) {
+				// Evaluate the placement on b itself and revert it afterwards.
+				b.place(moves, m, undo);
+				addCandidate(b, batch.add(m), batch, mem, c, states);
+				b.undo(undo);
+			}
+			batch.score(param);
+			if(c != null) {
+				for(int i = 0; i < batch.size(); i++) {
+					if(!batch.isKnown(i)) {
+						c.put(states, i * w, batch.getScore(i));
 					}
 				}
 			}
-			lines += b.place(bestPiece, bestCol);
+			int best = batch.getMove(batch.best());
+			if(recorder != null) {
+				recorder.record(b, best, lines);
+			}
+			lines += b.place(moves.pieces[best], moves.col[best]);
+		}
+		if(c != null) {
+			// Counted per game, so that the caches of discarded contexts need not be kept.
+			cacheHits.addAndGet(c.getHits() - hits);
+			cacheMisses.addAndGet(c.getMisses() - misses);
 		}
 		return lines;
 	}
 
-	private double eval(Playfield b, double[] par, int[] mem) {
-		if(b.isTerminal()) { return -1.0 / 0.0; }
-		double ans = 0;
-		fs.extract(b, mem);
-		for(int c = 0; c < par.length; c++) {
-			ans += par[c] * mem[c];
+	/**
+	 * Gives candidate i the score of the afterstate b if it is known,
+	 * otherwise the features of b.
+	 * @param states where to store b for caching, if cache is not null.
+	 */
+	private void addCandidate(Playfield b, int i, CandidateBatch batch, int[] mem,
+		AfterstateCache cache, long[] states) {
+		if(b.isTerminal()) {
+			batch.setScore(i, -1.0 / 0.0);
+			return;
+		}
+		if(cache != null) {
+			System.arraycopy(b.columns, 0, states, i * w, w);
+			double score = cache.get(states, i * w);
+			if(score == score) { // Not NaN, so found.
+				batch.setScore(i, score);
+				return;
+			}
 		}
-		return ans;
+		fs.extract(b, mem);
+		batch.setFeatures(i, mem);
 	}
 }
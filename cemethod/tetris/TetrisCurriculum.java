@@ -0,0 +1,107 @@
+package cemethod.tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cemethod.Curriculum;
+import cemethod.Function;
+import cemethod.IterationSummary;
+
+/**
+ * A sequence of Tetris problems to train on, e.g. on higher and higher
+ * playfields with fewer and fewer trials, so that games get longer as the
+ * policy improves while the time per iteration stays roughly the same.
+ * The solver moves on to the next stage after a given number of iterations
+ * on the current one, or as soon as the games get long enough, measured
+ * by the mean number of lines per game of the elites.
+ */
+public class TetrisCurriculum implements Curriculum {
+	/**
+	 * The problem of each stage.
+	 */
+	private final List<Tetris> stages = new ArrayList<Tetris>();
+	/**
+	 * The maximal number of iterations of each stage before moving on.
+	 */
+	private final List<Integer> maxIterations = new ArrayList<Integer>();
+	/**
+	 * The mean elite performance of each stage at which to move on.
+	 */
+	private final List<Double> targetPerformance = new ArrayList<Double>();
+	/**
+	 * The current stage.
+	 */
+	private int stage;
+	/**
+	 * The number of iterations done in the current stage.
+	 */
+	private int iterations;
+
+	/**
+	 * @param first the problem to start with.
+	 */
+	public TetrisCurriculum(Tetris first) {
+		stages.add(first);
+	}
+
+	/**
+	 * Adds a stage after the last one added.
+	 * @param iterations the maximal number of iterations on the previous stage.
+	 * @param linesPerGame move on earlier if the mean performance of the elites
+	 * on the previous stage reaches this.
+	 * @param next the problem of the new stage, with the same dimension.
+	 * @return This curriculum.
+	 */
+	public TetrisCurriculum then(int iterations, double linesPerGame, Tetris next) {
+		if(next.dimension() != stages.get(0).dimension()) {
+			throw new IllegalArgumentException("All stages must have the same dimension.");
+		}
+		maxIterations.add(iterations);
+		targetPerformance.add(linesPerGame);
+		stages.add(next);
+		return this;
+	}
+
+	/**
+	 * @return The problem of the first stage, to give to CESolver.setProblem().
+	 */
+	public Tetris first() {
+		return stages.get(0);
+	}
+
+	/**
+	 * @return The problem of the current stage, the last one trained on after solve().
+	 */
+	public Tetris current() {
+		return stages.get(stage);
+	}
+
+	/**
+	 * @return The current stage, counting from 0.
+	 */
+	public int getStage() {
+		return stage;
+	}
+
+	/**
+	 * Starts over from the first stage.
+	 */
+	public void reset() {
+		stage = 0;
+		iterations = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see cemethod.Curriculum#next(cemethod.Function, cemethod.IterationSummary)
+	 */
+	@Override
+	public Function next(Function problem, IterationSummary last) {
+		iterations++;
+		if(stage + 1 < stages.size() && (iterations >= maxIterations.get(stage)
+			|| last.eliteMean >= targetPerformance.get(stage))) {
+			stage++;
+			iterations = 0;
+		}
+		return stages.get(stage);
+	}
+}
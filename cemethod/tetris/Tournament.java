@@ -0,0 +1,408 @@
+package cemethod.tetris;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import cemethod.TrialResult;
+
+/**
+ * Ranks parameter vectors for a Tetris problem. All vectors play the same
+ * games, see Tetris.playGame(), so that they can be compared game by game.
+ * Games are played in rounds, each vector whose place in the ranking is not
+ * yet statistically separated from a neighbour playing another batch of games,
+ * until all neighbours are separated or the game limit is reached.
+ * Since the separation is tested after every round, the level of each test
+ * is corrected for the number of rounds as well as for the number of pairs,
+ * see separated(). The confidence holds for one call to run(): calling it again
+ * after adding vectors or raising the limit tests the same games again.
+ * A game stopped at the piece limit of the problem counts with the lines
+ * cleared until then, so the means are lower bounds if any game was stopped.
+ * The report shows the number of stopped games of each vector.
+ */
+public class Tournament {
+	/**
+	 * The problem to play.
+	 */
+	private final Tetris tetris;
+	/**
+	 * The number of threads to play on.
+	 */
+	private final int threads;
+	/**
+	 * The name of each vector.
+	 */
+	private final List<String> names = new ArrayList<String>();
+	/**
+	 * The vectors.
+	 */
+	private final List<double[]> policies = new ArrayList<double[]>();
+	/**
+	 * The lines cleared by each vector in games 0, 1, ...
+	 */
+	private final List<int[]> lines = new ArrayList<int[]>();
+	/**
+	 * For each vector, whether games 0, 1, ... were stopped at the piece limit.
+	 */
+	private final List<boolean[]> capped = new ArrayList<boolean[]>();
+	/**
+	 * The number of games played by each vector.
+	 */
+	private final List<Integer> games = new ArrayList<Integer>();
+	/**
+	 * The number of games per vector and round.
+	 */
+	private int batch = 20;
+	/**
+	 * The maximal number of games per vector.
+	 */
+	private int maxGames = 1000;
+	/**
+	 * The confidence of the intervals and comparisons.
+	 */
+	private double confidence = 0.95;
+
+	/**
+	 * @param tetris the problem to play, whose piece limit, if any, also applies.
+	 * @param threads the number of threads to play on.
+	 */
+	public Tournament(Tetris tetris, int threads) {
+		this.tetris = tetris;
+		this.threads = threads;
+	}
+
+	/**
+	 * @param name the name of the vector in the report.
+	 * @param policy the vector, of dimension tetris.dimension().
+	 */
+	public void add(String name, double[] policy) {
+		if(policy.length != tetris.dimension()) {
+			throw new IllegalArgumentException(name + " has dimension " + policy.length
+				+ ", expected " + tetris.dimension() + ".");
+		}
+		names.add(name);
+		policies.add(policy.clone());
+		lines.add(new int[0]);
+		capped.add(new boolean[0]);
+		games.add(0);
+	}
+
+	/**
+	 * Adds the vectors in in, one per line. A line has the numbers of a vector
+	 * as decimal numbers, as tetris.Main prints them after training,
+	 * optionally preceded by a name ending with ':'. Empty lines and lines
+	 * starting with '#' are ignored. Vectors without a name are named by their line.
+	 * @param in the vectors.
+	 * @throws IOException if in throws, or a line is not a vector.
+	 */
+	public void load(Reader in) throws IOException {
+		BufferedReader br = new BufferedReader(in);
+		int lineNumber = 0;
+		for(String line = br.readLine(); line != null; line = br.readLine()) {
+			lineNumber++;
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#")) { continue; }
+			String name = "line " + lineNumber;
+			int colon = line.indexOf(':');
+			if(colon >= 0) {
+				name = line.substring(0, colon).trim();
+				line = line.substring(colon + 1).trim();
+			}
+			String[] tokens = line.split("\\s+");
+			double[] v = new double[tokens.length];
+			for(int i = 0; i < v.length; i++) {
+				v[i] = parse(tokens[i], lineNumber);
+			}
+			try {
+				add(name, v);
+			} catch(IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+	}
+
+	private static double parse(String token, int lineNumber) throws IOException {
+		try {
+			return Double.parseDouble(token);
+		} catch(NumberFormatException e) {
+			throw new IOException("Line " + lineNumber + ": not a number: " + token, e);
+		}
+	}
+
+	/**
+	 * @param batch the number of games each undecided vector plays per round, positive.
+	 */
+	public void setBatch(int batch) {
+		if(batch <= 0) {
+			throw new IllegalArgumentException("The batch must be positive.");
+		}
+		this.batch = batch;
+	}
+
+	/**
+	 * @param maxGames the maximal number of games per vector, positive.
+	 */
+	public void setMaxGames(int maxGames) {
+		if(maxGames <= 0) {
+			throw new IllegalArgumentException("The maximal number of games must be positive.");
+		}
+		this.maxGames = maxGames;
+	}
+
+	/**
+	 * @param confidence the confidence of the intervals and of the separation
+	 * of the ranking, e.g. 0.95. The intervals of the report are for each
+	 * vector alone, at the number of games it ended with.
+	 */
+	public void setConfidence(double confidence) {
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Plays rounds until neighbours in the ranking are separated or
+	 * the game limit is reached. Can be called again after adding vectors
+	 * or raising the limit, which reuses the games already played.
+	 * @throws InterruptedException if interrupted.
+	 */
+	public void run() throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			boolean[] active = new boolean[policies.size()];
+			Arrays.fill(active, true);
+			while(true) {
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for(int i = 0; i < active.length; i++) {
+					if(!active[i]) { continue; }
+					final int start = games.get(i);
+					final int end = Math.min(start + batch, maxGames);
+					final int[] l = Arrays.copyOf(lines.get(i), end);
+					final boolean[] c = Arrays.copyOf(capped.get(i), end);
+					final double[] policy = policies.get(i);
+					lines.set(i, l);
+					capped.set(i, c);
+					games.set(i, end);
+					for(int g = start; g < end; g++) {
+						final int game = g;
+						futures.add(pool.submit(new Runnable() {
+							@Override
+							public void run() {
+								TrialResult t = tetris.playGame(policy, game);
+								l[game] = (int)t.value;
+								c[game] = t.censored;
+							}
+						}));
+					}
+				}
+				for(Future<?> f : futures) {
+					try {
+						f.get();
+					} catch(ExecutionException e) {
+						throw new IllegalStateException("A game failed.", e.getCause());
+					}
+				}
+				active = undecided();
+				boolean any = false;
+				for(boolean b : active) {
+					any |= b;
+				}
+				if(!any) { break; }
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return For each vector, true if it is not separated from a neighbour in
+	 * the ranking and may play more games.
+	 */
+	private boolean[] undecided() {
+		List<Integer> ranking = ranking();
+		boolean[] active = new boolean[policies.size()];
+		for(int k = 0; k + 1 < ranking.size(); k++) {
+			int a = ranking.get(k);
+			int b = ranking.get(k + 1);
+			if(!separated(a, b)) {
+				active[a] = games.get(a) < maxGames;
+				active[b] = games.get(b) < maxGames;
+			}
+		}
+		// Vectors that have not played yet are always undecided.
+		for(int i = 0; i < active.length; i++) {
+			if(games.get(i) == 0) {
+				active[i] = true;
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * Two vectors are separated if a paired t-test on their common games
+	 * rejects equal means. The test is repeated after every round, so the
+	 * level is spent evenly over the most rounds there can be, maxGames / batch,
+	 * as well as divided by the number of pairs, so that all separations made
+	 * during a call to run() hold together with about the given confidence
+	 * (the t-test itself being approximate for non-normal game scores).
+	 * @return True if a and b are separated.
+	 */
+	private boolean separated(int a, int b) {
+		int n = Math.min(games.get(a), games.get(b));
+		if(n < 2) { return false; }
+		int[] la = lines.get(a);
+		int[] lb = lines.get(b);
+		double mean = 0;
+		for(int g = 0; g < n; g++) {
+			mean += (double)(la[g] - lb[g]) / n;
+		}
+		double var = 0;
+		for(int g = 0; g < n; g++) {
+			double d = la[g] - lb[g] - mean;
+			var += d * d / (n - 1);
+		}
+		int m = policies.size();
+		int pairs = Math.max(m * (m - 1) / 2, 1);
+		int rounds = (maxGames + batch - 1) / batch;
+		double alpha = (1 - confidence) / pairs / rounds;
+		double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - alpha / 2);
+		return Math.abs(mean) > t * Math.sqrt(var / n);
+	}
+
+	/**
+	 * @return The indices of the vectors, best mean first.
+	 */
+	public List<Integer> ranking() {
+		List<Integer> ranking = new ArrayList<Integer>();
+		for(int i = 0; i < policies.size(); i++) {
+			ranking.add(i);
+		}
+		Collections.sort(ranking, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(mean(b), mean(a));
+			}
+		});
+		return ranking;
+	}
+
+	/**
+	 * @param i a vector.
+	 * @return The number of games played by the vector.
+	 */
+	public int games(int i) {
+		return games.get(i);
+	}
+
+	/**
+	 * @param i a vector.
+	 * @return The number of games of the vector stopped at the piece limit.
+	 */
+	public int cappedGames(int i) {
+		int n = games.get(i);
+		boolean[] c = capped.get(i);
+		int count = 0;
+		for(int g = 0; g < n; g++) {
+			if(c[g]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param i a vector.
+	 * @return The mean number of lines per game of the vector, counting
+	 * games stopped at the piece limit with the lines cleared until then.
+	 */
+	public double mean(int i) {
+		int n = games.get(i);
+		int[] l = lines.get(i);
+		double sum = 0;
+		for(int g = 0; g < n; g++) {
+			sum += l[g];
+		}
+		return n > 0 ? sum / n : Double.NaN;
+	}
+
+	/**
+	 * @param i a vector.
+	 * @return Half the width of the confidence interval of mean(i).
+	 */
+	public double halfWidth(int i) {
+		int n = games.get(i);
+		if(n < 2) { return Double.POSITIVE_INFINITY; }
+		int[] l = lines.get(i);
+		double mean = mean(i);
+		double var = 0;
+		for(int g = 0; g < n; g++) {
+			var += (l[g] - mean) * (l[g] - mean) / (n - 1);
+		}
+		double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - (1 - confidence) / 2);
+		return t * Math.sqrt(var / n);
+	}
+
+	/**
+	 * @param a a vector.
+	 * @param b a vector.
+	 * @return The fraction of their common games where a cleared more lines
+	 * than b, with ties counting one half.
+	 */
+	public double winRate(int a, int b) {
+		int n = Math.min(games.get(a), games.get(b));
+		int[] la = lines.get(a);
+		int[] lb = lines.get(b);
+		double wins = 0;
+		for(int g = 0; g < n; g++) {
+			if(la[g] > lb[g]) {
+				wins++;
+			} else if(la[g] == lb[g]) {
+				wins += 0.5;
+			}
+		}
+		return n > 0 ? wins / n : Double.NaN;
+	}
+
+	/**
+	 * @return The ranking, with the mean lines per game, confidence interval,
+	 * games and games stopped at the piece limit of each vector, and the win
+	 * rate of each vector against each other one.
+	 */
+	public String report() {
+		List<Integer> ranking = ranking();
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%4s  %-20s %12s %12s %7s %7s%n", "rank", "name", "lines/game",
+			String.format("%.0f%% CI +-", 100 * confidence), "games", "capped"));
+		for(int k = 0; k < ranking.size(); k++) {
+			int i = ranking.get(k);
+			sb.append(String.format("%4d  %-20s %12.1f %12.1f %7d %7d%n", k + 1, names.get(i), mean(i),
+				halfWidth(i), games(i), cappedGames(i)));
+		}
+		sb.append(String.format("%nWin rate of row against column:%n%4s", ""));
+		for(int k = 0; k < ranking.size(); k++) {
+			sb.append(String.format(" %6d", k + 1));
+		}
+		sb.append(String.format("%n"));
+		for(int k = 0; k < ranking.size(); k++) {
+			sb.append(String.format("%4d", k + 1));
+			for(int j = 0; j < ranking.size(); j++) {
+				if(j == k) {
+					sb.append(String.format(" %6s", "-"));
+				} else {
+					sb.append(String.format(" %6.3f", winRate(ranking.get(k), ranking.get(j))));
+				}
+			}
+			sb.append(String.format("%n"));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,113 @@
+package cemethod.tetris;
+
+import java.util.Arrays;
+
+/**
+ * Records the moves of a game, see Tetris.runTrial(double[], boolean, TraceRecorder).
+ * One recorder records one game.
+ */
+public class TraceRecorder {
+	/**
+	 * The width of the playfield.
+	 */
+	private final int width;
+	/**
+	 * The height of the playfield.
+	 */
+	private final int height;
+	/**
+	 * The number of moves between snapshots, 0 for none.
+	 */
+	private final int snapshotInterval;
+	/**
+	 * The encoded moves and snapshots, see GameTrace.
+	 */
+	private byte[] data = new byte[256];
+	/**
+	 * The number of bytes used in data.
+	 */
+	private int size;
+	/**
+	 * The number of moves recorded.
+	 */
+	private int moves;
+
+	/**
+	 * @param width the width of the playfield.
+	 * @param height the height of the playfield.
+	 * @param snapshotInterval the number of moves between snapshots of the board,
+	 * which make seeking faster, 0 for no snapshots.
+	 */
+	public TraceRecorder(int width, int height, int snapshotInterval) {
+		if(snapshotInterval < 0) { throw new IllegalArgumentException("Negative snapshot interval."); }
+		this.width = width;
+		this.height = height;
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	/**
+	 * @return The width of the playfield.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return The height of the playfield.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Records a move, to be called before it is made.
+	 * @param b the playfield before the move.
+	 * @param move the index of the move in the MoveTable for the width of b.
+	 * @param linesSoFar the number of lines cleared before the move.
+	 */
+	void record(Playfield b, int move, int linesSoFar) {
+		if(move > GameTrace.MAX_MOVE) { throw new IllegalArgumentException("Playfield too wide to record."); }
+		if(snapshotInterval > 0 && moves > 0 && moves % snapshotInterval == 0) {
+			ensureCapacity(4 + 8 * width);
+			putLong(linesSoFar, 4);
+			for(int c = 0; c < width; c++) {
+				putLong(b.columns[c], 8);
+			}
+		}
+		ensureCapacity(2);
+		if(move < GameTrace.TWO_BYTES) {
+			data[size++] = (byte)move;
+		} else {
+			int x = move - GameTrace.TWO_BYTES;
+			data[size++] = (byte)(GameTrace.TWO_BYTES | x >> 8);
+			data[size++] = (byte)x;
+		}
+		moves++;
+	}
+
+	/**
+	 * @return The number of moves recorded.
+	 */
+	public int moves() {
+		return moves;
+	}
+
+	/**
+	 * @return The game recorded so far.
+	 */
+	public GameTrace toTrace() {
+		return new GameTrace(width, height, snapshotInterval, moves, Arrays.copyOf(data, size));
+	}
+
+	private void putLong(long x, int bytes) {
+		for(int i = bytes - 1; i >= 0; i--) {
+			data[size++] = (byte)(x >>> 8 * i);
+		}
+	}
+
+	private void ensureCapacity(int extra) {
+		if(size + extra > data.length) {
+			data = Arrays.copyOf(data, Math.max(2 * data.length, size + extra));
+		}
+	}
+}
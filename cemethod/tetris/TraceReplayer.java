@@ -0,0 +1,180 @@
+package cemethod.tetris;
+
+import java.util.Arrays;
+
+/**
+ * Replays a recorded game on a playfield, one move at a time, or by
+ * fast-forwarding or seeking to any move. Seeking restores the closest
+ * earlier snapshot, if any, and replays the moves from there.
+ */
+public class TraceReplayer {
+	/**
+	 * The game replayed.
+	 */
+	private final GameTrace trace;
+	/**
+	 * The moves for the width of the playfield.
+	 */
+	private final MoveTable table;
+	/**
+	 * The playfield the game is replayed on.
+	 */
+	private final Playfield b;
+	/**
+	 * The decoded moves, indices into table.
+	 */
+	private final int[] moves;
+	/**
+	 * Snapshot k, taken before move (k + 1) * snapshotInterval, starts at data[snapshots[k]].
+	 */
+	private final int[] snapshots;
+	/**
+	 * Scratch memory for restoring snapshots.
+	 */
+	private final long[] columns;
+	/**
+	 * The number of moves made.
+	 */
+	private int position;
+	/**
+	 * The number of lines cleared by the moves made.
+	 */
+	private int lines;
+
+	/**
+	 * @param trace the game to replay.
+	 */
+	public TraceReplayer(GameTrace trace) {
+		this(trace, new Playfield(trace.width, trace.height));
+	}
+
+	/**
+	 * @param trace the game to replay.
+	 * @param b an empty playfield of the size of the recorded one, e.g. a SwingPlayfield.
+	 */
+	public TraceReplayer(GameTrace trace, Playfield b) {
+		if(b.width != trace.width || b.height != trace.height) {
+			throw new IllegalArgumentException("Playfield does not match the trace.");
+		}
+		this.trace = trace;
+		this.b = b;
+		table = new MoveTable(Piece.PIECES, trace.width);
+		columns = new long[trace.width];
+		moves = new int[trace.moves];
+		int interval = trace.snapshotInterval;
+		snapshots = new int[interval > 0 ? Math.max((trace.moves - 1) / interval, 0) : 0];
+		byte[] data = trace.data();
+		int pos = 0;
+		for(int i = 0; i < moves.length; i++) {
+			if(interval > 0 && i > 0 && i % interval == 0) {
+				snapshots[i / interval - 1] = pos;
+				pos += 4 + 8 * trace.width;
+			}
+			int x = data[pos++] & 0xFF;
+			if(x >= GameTrace.TWO_BYTES) {
+				x = GameTrace.TWO_BYTES + ((x & 0x0F) << 8 | data[pos++] & 0xFF);
+			}
+			if(x >= table.col.length) { throw new IllegalArgumentException("Corrupt game trace."); }
+			moves[i] = x;
+		}
+	}
+
+	/**
+	 * @return The playfield the game is replayed on.
+	 */
+	public Playfield playfield() {
+		return b;
+	}
+
+	/**
+	 * @return The number of moves in the game.
+	 */
+	public int moves() {
+		return moves.length;
+	}
+
+	/**
+	 * @return The number of moves made.
+	 */
+	public int position() {
+		return position;
+	}
+
+	/**
+	 * @return The number of lines cleared by the moves made.
+	 */
+	public int lines() {
+		return lines;
+	}
+
+	/**
+	 * @return The index of the piece of the next move, in Piece.PIECES.
+	 */
+	public int nextPiece() {
+		return table.piece[moves[position]];
+	}
+
+	/**
+	 * Makes the next move.
+	 * @return The number of rows cleared.
+	 */
+	public int step() {
+		if(position == moves.length) { throw new IllegalStateException("No moves left."); }
+		int m = moves[position++];
+		int r = b.place(table.pieces[m], table.col[m]);
+		lines += r;
+		return r;
+	}
+
+	/**
+	 * Makes the next n moves, or all remaining moves if there are fewer.
+	 * @param n the number of moves to make.
+	 */
+	public void fastForward(int n) {
+		int end = (int)Math.min((long)position + n, moves.length);
+		while(position < end) {
+			step();
+		}
+	}
+
+	/**
+	 * Moves to the state before move number move, i.e. after move moves.
+	 * @param move between 0 and moves().
+	 */
+	public void seek(int move) {
+		if(move < 0 || move > moves.length) { throw new IllegalArgumentException("No such move."); }
+		int interval = trace.snapshotInterval;
+		int k = interval > 0 ? Math.min(move / interval, snapshots.length) : 0;
+		int start = k * interval;
+		// Replaying forward is cheapest if the snapshot is not closer.
+		if(position > move || position < start) {
+			if(k == 0) {
+				Arrays.fill(columns, 0);
+				lines = 0;
+			} else {
+				restore(snapshots[k - 1]);
+			}
+			b.setColumns(columns, 0);
+			position = start;
+		}
+		fastForward(move - position);
+	}
+
+	private void restore(int pos) {
+		byte[] data = trace.data();
+		lines = (int)getLong(data, pos, 4);
+		pos += 4;
+		for(int c = 0; c < columns.length; c++) {
+			columns[c] = getLong(data, pos, 8);
+			pos += 8;
+		}
+	}
+
+	private static long getLong(byte[] data, int pos, int bytes) {
+		long x = 0;
+		for(int i = 0; i < bytes; i++) {
+			x = x << 8 | data[pos + i] & 0xFF;
+		}
+		return x;
+	}
+}
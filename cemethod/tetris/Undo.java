@@ -0,0 +1,48 @@
+package cemethod.tetris;
+
+/**
+ * The information needed to undo a call to Playfield.place(MoveTable, int, Undo).
+ * One instance can be reused for any number of placements.
+ */
+class Undo {
+	/**
+	 * The table of the move made.
+	 */
+	MoveTable moves;
+	/**
+	 * The move made.
+	 */
+	int move;
+	/**
+	 * The row of the bottom of the piece.
+	 */
+	int placementHeight;
+	/**
+	 * Bit i is set if row i was cleared, counted before clearing.
+	 */
+	long clearedRows;
+	/**
+	 * The heights of the columns touched by the piece, before placing it.
+	 */
+	int[] previousHeights = new int[4];
+	/**
+	 * The sum of the heights before placing the piece.
+	 */
+	int heightSum;
+	/**
+	 * The maximal height before placing the piece.
+	 */
+	int maxHeight;
+	/**
+	 * Whether the game had ended before placing the piece.
+	 */
+	boolean terminated;
+	/**
+	 * The landing height of the previous piece.
+	 */
+	int landingHeight;
+	/**
+	 * The eroded cells of the previous piece.
+	 */
+	int erodedCells;
+}